@@ -0,0 +1,200 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Per-channel gain/offset correction of one supply against a reference meter.
+ * <p>
+ * Applied to raw u16 values in integer fixed-point (gain in Q16, offset in raw units),
+ * before anything becomes a {@code BigDecimal}:
+ * <pre>
+ * shown  = raw * gain + offset          measured and read-back setpoint values
+ * device = (wanted - offset) / gain     setpoints before they are written
+ * </pre>
+ * A channel's voltage correction covers both {@code *_V_MEAS} and {@code *_V_SET},
+ * likewise for current, so a setpoint reads back as what was asked for.
+ * <p>
+ * Files are named {@code <key>.cal} (key = port name or device ID, with anything outside
+ * {@code [A-Za-z0-9._-]} replaced by {@code _}) and looked up in the directory given by
+ * {@code lab.calibration.dir}, default {@code ~/.lab-device/calibration}:
+ * <pre>
+ * # field       gain      offset (in field units)
+ * CH1_V_MEAS    1.00125   -0.02
+ * CH1_I_MEAS    0.998      0.001
+ * </pre>
+ */
+public final class Calibration {
+
+    private static final String DIR_PROPERTY = "lab.calibration.dir";
+    private static final int Q = 16;
+    private static final int ONE = 1 << Q;
+    private static final int U16_MAX = 0xFFFF;
+
+    private static final Calibration IDENTITY = new Calibration(identityGains(), new int[Field.count()], 0);
+
+    private final int[] gain;
+    private final int[] offset;
+    private final long mask;
+
+    private Calibration(int[] gain, int[] offset, long mask) {
+        this.gain = gain;
+        this.offset = offset;
+        this.mask = mask;
+    }
+
+    // -------------------------
+    // Lookup
+    // -------------------------
+
+    public static Calibration identity() {
+        return IDENTITY;
+    }
+
+    /** Calibration file for {@code key}, or {@link #identity()} if there is none. */
+    public static Calibration forDevice(String key) {
+        var file = directory().resolve(key.replaceAll("[^A-Za-z0-9._-]", "_") + ".cal");
+        if (!Files.isRegularFile(file)) return IDENTITY;
+
+        try (var in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(file.toString(), in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read calibration " + file, e);
+        }
+    }
+
+    private static Path directory() {
+        var dir = System.getProperty(DIR_PROPERTY);
+        if (dir != null) return Path.of(dir);
+        return Path.of(System.getProperty("user.home"), ".lab-device", "calibration");
+    }
+
+    public boolean isIdentity() {
+        return mask == 0;
+    }
+
+    // -------------------------
+    // Correction (no allocation)
+    // -------------------------
+
+    /** Slots whose values this calibration changes. */
+    long mask() {
+        return mask;
+    }
+
+    /** Device raw value -> corrected raw value, for slots in {@link #mask()}. */
+    int toDisplay(int slot, int raw) {
+        long v = ((long) raw * gain[slot] + (ONE >> 1) >> Q) + offset[slot];
+        return clamp(v);
+    }
+
+    /** As {@link #toDisplay(int, int)}, leaving fields without correction untouched. */
+    int toDisplay(Field<?> field, int raw) {
+        int slot = field.index();
+        return (mask & (1L << slot)) == 0 ? raw : toDisplay(slot, raw);
+    }
+
+    /** Wanted raw setpoint -> raw value to write so the device reads back {@code raw} after correction. */
+    int toDevice(Field<?> field, int raw) {
+        int slot = field.index();
+        if ((mask & (1L << slot)) == 0) return raw;
+        long numerator = ((long) (raw - offset[slot]) << Q) + (gain[slot] >> 1);
+        return clamp(Math.floorDiv(numerator, gain[slot]));
+    }
+
+    /** Corrects the slots of {@code raw} that are in {@code slots} and in {@link #mask()}, in place. */
+    void apply(int[] raw, long slots) {
+        for (long m = slots & mask; m != 0; m &= m - 1) {
+            int i = Long.numberOfTrailingZeros(m);
+            raw[i] = toDisplay(i, raw[i]);
+        }
+    }
+
+    private static int clamp(long v) {
+        return (int) Math.max(0, Math.min(U16_MAX, v));
+    }
+
+    // -------------------------
+    // Parsing
+    // -------------------------
+
+    static Calibration parse(String source, BufferedReader in) throws IOException {
+        int[] gain = identityGains();
+        int[] offset = new int[Field.count()];
+        long mask = 0;
+
+        String line;
+        int lineNo = 0;
+        while ((line = in.readLine()) != null) {
+            lineNo++;
+            int hash = line.indexOf('#');
+            if (hash >= 0) line = line.substring(0, hash);
+            line = line.strip();
+            if (line.isEmpty()) continue;
+
+            var cols = line.split("\\s+");
+            if (cols.length != 3) throw error(source, lineNo, "expected 3 columns");
+
+            var measured = measuredField(cols[0]);
+            if (measured == null) throw error(source, lineNo, cols[0] + " is not a measured voltage or current");
+
+            BigDecimal g;
+            BigDecimal o;
+            try {
+                g = new BigDecimal(cols[1]);
+                o = new BigDecimal(cols[2]);
+            } catch (NumberFormatException e) {
+                throw error(source, lineNo, "gain and offset must be decimal numbers");
+            }
+            if (g.signum() <= 0) throw error(source, lineNo, "gain must be positive");
+
+            int qGain;
+            int rawOffset;
+            try {
+                qGain = g.multiply(BigDecimal.valueOf(ONE)).setScale(0, RoundingMode.HALF_UP).intValueExact();
+                rawOffset = o.setScale(measured.scale(), RoundingMode.HALF_UP).unscaledValue().intValueExact();
+            } catch (ArithmeticException e) {
+                throw error(source, lineNo, "gain or offset out of range");
+            }
+            // A gain that rounds to 0 in Q16 would divide by zero in toDevice
+            if (qGain <= 0) throw error(source, lineNo, "gain out of range");
+
+            for (var f : new Field<?>[] {measured, setpointOf(measured)}) {
+                gain[f.index()] = qGain;
+                offset[f.index()] = rawOffset;
+                if (qGain != ONE || rawOffset != 0) mask |= 1L << f.index();
+            }
+        }
+
+        return new Calibration(gain, offset, mask);
+    }
+
+    private static Field<?> measuredField(String name) {
+        for (var f : new Field<?>[] {Field.CH1_V_MEAS, Field.CH1_I_MEAS, Field.CH2_V_MEAS, Field.CH2_I_MEAS}) {
+            if (f.name().equals(name)) return f;
+        }
+        return null;
+    }
+
+    private static Field<?> setpointOf(Field<?> measured) {
+        if (measured == Field.CH1_V_MEAS) return Field.CH1_V_SET;
+        if (measured == Field.CH1_I_MEAS) return Field.CH1_I_SET;
+        if (measured == Field.CH2_V_MEAS) return Field.CH2_V_SET;
+        return Field.CH2_I_SET;
+    }
+
+    private static int[] identityGains() {
+        int[] gain = new int[Field.count()];
+        Arrays.fill(gain, ONE);
+        return gain;
+    }
+
+    private static IllegalArgumentException error(String source, int lineNo, String msg) {
+        return new IllegalArgumentException(source + ":" + lineNo + ": " + msg);
+    }
+}
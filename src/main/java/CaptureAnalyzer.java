@@ -0,0 +1,527 @@
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Offline analysis of a raw RX capture (the bytes as they came off the port).
+ * <p>
+ * The file is memory-mapped and cut into chunks that each begin at a CRC-valid
+ * read-all frame, so no frame straddles two chunks. Chunks are decoded in parallel on
+ * a fork/join pool, each with its own {@link FrameBuffer} and {@link FrameDecoder};
+ * every chunk keeps only aggregates plus its edge state, and the results are merged in
+ * file order, stitching gaps, frozen runs and state changes across chunk boundaries.
+ * <p>
+ * Reports CRC/framing errors, gaps (bytes lost between two read-all frames), frozen
+ * intervals (no field changed for {@value #STALE_MILLIS} ms or more), the timeline of
+ * flag changes, and per-field summaries. A capture has no timestamps: times are frame
+ * index times the poll period and are marked {@code ~}.
+ * <p>
+ * Run: {@code java CaptureAnalyzer <capture> [poll-period-ms] [threads] [model]}
+ */
+public final class CaptureAnalyzer {
+
+    private static final long MIN_CHUNK = 1L << 20;
+    private static final long MAX_CHUNK = 64L << 20;
+    private static final int BLOCK = 64 * 1024;
+
+    private static final long STALE_MILLIS = 2_000;
+    private static final int EVENTS_PER_CHUNK = 1_000;
+    private static final int TIMELINE_LINES = 50;
+    private static final int TOP_GAPS = 10;
+    private static final int TOP_FROZEN = 10;
+
+    private static final Field<?>[] FIELDS = Field.values();
+    private static final long STATE_SLOTS = FrameDecoder.maskOf(
+            Field.OUTPUT, Field.SERIAL, Field.PARALLEL,
+            Field.CH1_CV, Field.CH1_CC, Field.CH2_CV, Field.CH2_CC);
+
+    record Gap(long beforeFrame, long offset, long bytes) {}
+
+    record Frozen(long firstFrame, long offset, long frames) {}
+
+    record Event(long frame, long offset, Field<?> field, boolean on) {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: java CaptureAnalyzer <capture> [poll-period-ms] [threads] [model]");
+            System.exit(2);
+        }
+        var file = Path.of(args[0]);
+        long periodMillis = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        var map = args.length > 3 ? RegisterMaps.forModel(args[3]) : RegisterMaps.defaultMap();
+
+        try (var arena = Arena.ofShared();
+             var channel = FileChannel.open(file, StandardOpenOption.READ);
+             var pool = new ForkJoinPool(threads)) {
+            long size = channel.size();
+            var data = size == 0 ? MemorySegment.NULL : channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+            long chunk = Math.clamp(size / (threads * 8L), MIN_CHUNK, MAX_CHUNK);
+            long staleFrames = Math.max(2, STALE_MILLIS / Math.max(1, periodMillis));
+
+            long begin = System.nanoTime();
+            var report = new CaptureAnalyzer(map, data, size, chunk, staleFrames).analyze(pool);
+            long elapsed = System.nanoTime() - begin;
+
+            report.print(file, periodMillis);
+            System.out.printf("%n%d chunks on %d threads, %.1f MB/s%n",
+                    report.chunks, threads, size / (elapsed / 1e9) / (1 << 20));
+        }
+    }
+
+    private final RegisterMap map;
+    private final MemorySegment data;
+    private final long size;
+    private final long chunkSize;
+    private final long staleFrames;
+
+    /** {@code chunkSize} is 1 to 64 MB from {@link #main}; tests pass a few frames to exercise the merge. */
+    CaptureAnalyzer(RegisterMap map, MemorySegment data, long size, long chunkSize, long staleFrames) {
+        this.map = map;
+        this.data = data;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.staleFrames = staleFrames;
+    }
+
+    Report analyze(ForkJoinPool pool) {
+        int n = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+        var chunks = new Chunk[n];
+        pool.invoke(new DecodeTask(chunks, 0, n));
+
+        var report = new Report(map.frameLength());
+        for (var c : chunks) report.merge(c, staleFrames);
+        report.finish(staleFrames);
+        return report;
+    }
+
+    /** Splits the chunk range in halves until one chunk is left, then decodes it. */
+    private final class DecodeTask extends RecursiveAction {
+
+        private final Chunk[] out;
+        private final int lo;
+        private final int hi;
+
+        DecodeTask(Chunk[] out, int lo, int hi) {
+            this.out = out;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo == 1) {
+                long start = lo == 0 ? 0 : frameStartAtOrAfter(lo * chunkSize);
+                long end = lo == out.length - 1 ? size : frameStartAtOrAfter((lo + 1) * chunkSize);
+                out[lo] = decode(start, Math.max(start, end));
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new DecodeTask(out, lo, mid), new DecodeTask(out, mid, hi));
+        }
+    }
+
+    // -------------------------
+    // Chunking
+    // -------------------------
+
+    /** Offset of the first CRC-valid read-all frame at or after {@code from}, or the file size. */
+    private long frameStartAtOrAfter(long from) {
+        int len = map.frameLength();
+        byte[] candidate = new byte[len];
+        for (long off = from; off + len <= size; off++) {
+            if (data.get(ValueLayout.JAVA_BYTE, off) != (byte) 0xF7) continue;
+            MemorySegment.copy(data, ValueLayout.JAVA_BYTE, off, candidate, 0, len);
+            if (map.isReadAllResponse(candidate) && Frames.isValidFrame(candidate)) return off;
+        }
+        return size;
+    }
+
+    // -------------------------
+    // Per-chunk decoding
+    // -------------------------
+
+    private Chunk decode(long start, long end) {
+        var fb = new FrameBuffer(map);
+        var decoder = new FrameDecoder(map);
+        var c = new Chunk(start, end);
+        byte[] block = new byte[BLOCK];
+
+        long popped = 0;
+        long discardedAtLast = 0;
+        long runStart = 0;
+        long runOffset = 0;
+        long runLength = 0;
+        boolean leadingOpen = true;
+
+        for (long pos = start; pos < end; ) {
+            int n = (int) Math.min(BLOCK, end - pos);
+            MemorySegment.copy(data, ValueLayout.JAVA_BYTE, pos, block, 0, n);
+            pos += n;
+            fb.append(block, n, 0);
+
+            byte[] frame;
+            while ((frame = fb.tryPopFrame()) != null) {
+                popped += frame.length;
+                if (!map.isReadAllResponse(frame)) {
+                    c.otherFrames++;
+                    continue;
+                }
+
+                long offset = start + fb.frameOffset();
+                long changed = decoder.decode(frame);
+                long idx = c.frames++;
+
+                // Gaps and flag changes against the previous frame of this chunk
+                long discarded = fb.discardedBytes() - discardedAtLast;
+                discardedAtLast = fb.discardedBytes();
+                if (idx == 0) {
+                    c.leadingDiscard = discarded;
+                    c.firstOffset = offset;
+                    decoder.copyFields(c.first);
+                } else {
+                    if (discarded > 0) c.addGap(new Gap(idx, offset, discarded));
+                    for (long m = changed & STATE_SLOTS; m != 0; m &= m - 1) {
+                        var f = FIELDS[Long.numberOfTrailingZeros(m)];
+                        c.addEvent(new Event(idx, offset, f, decoder.raw(f) != 0));
+                    }
+                }
+
+                // Runs of identical frames
+                if (idx > 0 && (changed & FrameDecoder.FIELD_SLOTS) == 0) {
+                    runLength++;
+                } else {
+                    if (idx > 0) {
+                        if (leadingOpen) {
+                            c.leadingRun = runLength;
+                            leadingOpen = false;
+                        } else if (runLength >= staleFrames) {
+                            c.frozen.add(new Frozen(runStart, runOffset, runLength));
+                        }
+                    }
+                    runStart = idx;
+                    runOffset = offset;
+                    runLength = 1;
+                }
+
+                c.accumulate(decoder);
+            }
+        }
+
+        long leftover = (end - start) - fb.discardedBytes() - popped;
+        c.crcErrors = fb.crcErrors();
+        c.rejectedStarts = fb.rejectedStarts();
+        c.discardedBytes = fb.discardedBytes() + leftover;
+
+        if (c.frames == 0) {
+            c.leadingDiscard = c.discardedBytes;
+            return c;
+        }
+        decoder.copyFields(c.last);
+        c.trailingDiscard = fb.discardedBytes() - discardedAtLast + leftover;
+        c.uniform = leadingOpen;
+        if (leadingOpen) c.leadingRun = runLength;
+        c.trailingRunStart = runStart;
+        c.trailingRunOffset = runOffset;
+        c.trailingRun = runLength;
+        return c;
+    }
+
+    /** What one chunk found, with frame numbers local to the chunk and absolute byte offsets. */
+    private static final class Chunk {
+
+        final long start;
+        final long end;
+
+        long frames;
+        long otherFrames;
+        long crcErrors;
+        long rejectedStarts;
+        long discardedBytes;
+        long leadingDiscard;
+        long trailingDiscard;
+
+        long firstOffset;
+        final int[] first = new int[Field.count()];
+        final int[] last = new int[Field.count()];
+
+        // Runs of identical frames: the one touching the start, the one touching the end,
+        // and every long-enough one strictly inside; uniform = one run covers the chunk
+        long leadingRun;
+        long trailingRun;
+        long trailingRunStart;
+        long trailingRunOffset;
+        boolean uniform;
+        final List<Frozen> frozen = new ArrayList<>();
+
+        long gapCount;
+        long gapBytes;
+        final List<Gap> gaps = new ArrayList<>();
+
+        final long[] transitions = new long[Field.count()];
+        final List<Event> events = new ArrayList<>();
+
+        final long[] min = new long[Field.count()];
+        final long[] max = new long[Field.count()];
+        final long[] sum = new long[Field.count()];
+
+        Chunk(long start, long end) {
+            this.start = start;
+            this.end = end;
+            Arrays.fill(min, Long.MAX_VALUE);
+            Arrays.fill(max, Long.MIN_VALUE);
+        }
+
+        void accumulate(FrameDecoder decoder) {
+            for (var f : FIELDS) {
+                int v = decoder.raw(f);
+                int i = f.index();
+                if (v < min[i]) min[i] = v;
+                if (v > max[i]) max[i] = v;
+                sum[i] += v;
+            }
+        }
+
+        void addGap(Gap gap) {
+            gapCount++;
+            gapBytes += gap.bytes;
+            gaps.add(gap);
+            if (gaps.size() > 4 * TOP_GAPS) keepLargest(gaps);
+        }
+
+        void addEvent(Event event) {
+            transitions[event.field.index()]++;
+            if (events.size() < EVENTS_PER_CHUNK) events.add(event);
+        }
+    }
+
+    private static void keepLargest(List<Gap> gaps) {
+        gaps.sort(Comparator.comparingLong(Gap::bytes).reversed());
+        gaps.subList(TOP_GAPS, gaps.size()).clear();
+    }
+
+    // -------------------------
+    // Ordered merge
+    // -------------------------
+
+    static final class Report {
+
+        final int frameLength;
+        int chunks;
+
+        long frames;
+        long otherFrames;
+        long crcErrors;
+        long rejectedStarts;
+        long discardedBytes;
+
+        long gapCount;
+        long gapBytes;
+        final List<Gap> gaps = new ArrayList<>();
+
+        long frozenCount;
+        long frozenFrames;
+        final List<Frozen> frozen = new ArrayList<>();
+
+        final int[] initial = new int[Field.count()];
+        final long[] transitions = new long[Field.count()];
+        final List<Event> events = new ArrayList<>();
+
+        final long[] min = new long[Field.count()];
+        final long[] max = new long[Field.count()];
+        final long[] sum = new long[Field.count()];
+
+        // Carried from one chunk to the next
+        private int[] previous;
+        private long pendingDiscard;
+        private long openRunStart;
+        private long openRunOffset;
+        private long openRunLength;
+
+        Report(int frameLength) {
+            this.frameLength = frameLength;
+            Arrays.fill(min, Long.MAX_VALUE);
+            Arrays.fill(max, Long.MIN_VALUE);
+        }
+
+        void merge(Chunk c, long staleFrames) {
+            chunks++;
+            otherFrames += c.otherFrames;
+            crcErrors += c.crcErrors;
+            rejectedStarts += c.rejectedStarts;
+            discardedBytes += c.discardedBytes;
+
+            if (c.frames == 0) {
+                pendingDiscard += c.leadingDiscard;
+                return;
+            }
+
+            long base = frames;
+            long boundaryDiscard = pendingDiscard + c.leadingDiscard;
+
+            if (previous == null) {
+                System.arraycopy(c.first, 0, initial, 0, initial.length);
+                openRun(base, c.firstOffset, c.leadingRun);
+            } else {
+                if (boundaryDiscard > 0) addGap(new Gap(base, c.firstOffset, boundaryDiscard));
+                for (var f : FIELDS) {
+                    int i = f.index();
+                    if ((STATE_SLOTS & (1L << i)) != 0 && previous[i] != c.first[i]) {
+                        addEvent(new Event(base, c.firstOffset, f, c.first[i] != 0));
+                    }
+                }
+                if (Arrays.equals(previous, c.first)) {
+                    openRunLength += c.leadingRun;
+                } else {
+                    closeRun(staleFrames);
+                    openRun(base, c.firstOffset, c.leadingRun);
+                }
+            }
+
+            if (!c.uniform) {
+                closeRun(staleFrames);
+                for (var r : c.frozen) addFrozen(new Frozen(base + r.firstFrame, r.offset, r.frames));
+                openRun(base + c.trailingRunStart, c.trailingRunOffset, c.trailingRun);
+            }
+
+            gapCount += c.gapCount;
+            gapBytes += c.gapBytes;
+            for (var g : c.gaps) gaps.add(new Gap(base + g.beforeFrame, g.offset, g.bytes));
+            if (gaps.size() > 4 * TOP_GAPS) keepLargest(gaps);
+
+            for (int i = 0; i < transitions.length; i++) transitions[i] += c.transitions[i];
+            for (var e : c.events) {
+                if (events.size() < TIMELINE_LINES) events.add(new Event(base + e.frame, e.offset, e.field, e.on));
+            }
+
+            for (int i = 0; i < sum.length; i++) {
+                min[i] = Math.min(min[i], c.min[i]);
+                max[i] = Math.max(max[i], c.max[i]);
+                sum[i] += c.sum[i];
+            }
+
+            frames += c.frames;
+            previous = c.last;
+            pendingDiscard = c.trailingDiscard;
+        }
+
+        void finish(long staleFrames) {
+            closeRun(staleFrames);
+            if (gaps.size() > TOP_GAPS) keepLargest(gaps);
+            gaps.sort(Comparator.comparingLong(Gap::bytes).reversed());
+            frozen.sort(Comparator.comparingLong(Frozen::frames).reversed());
+        }
+
+        private void addGap(Gap gap) {
+            gapCount++;
+            gapBytes += gap.bytes;
+            gaps.add(gap);
+        }
+
+        private void addEvent(Event event) {
+            transitions[event.field.index()]++;
+            // A boundary event is on the chunk's first frame, so it precedes the chunk's own events
+            if (events.size() < TIMELINE_LINES) events.add(event);
+        }
+
+        private void openRun(long start, long offset, long length) {
+            openRunStart = start;
+            openRunOffset = offset;
+            openRunLength = length;
+        }
+
+        private void closeRun(long staleFrames) {
+            if (openRunLength >= staleFrames) addFrozen(new Frozen(openRunStart, openRunOffset, openRunLength));
+            openRunLength = 0;
+        }
+
+        private void addFrozen(Frozen run) {
+            frozenCount++;
+            frozenFrames += run.frames;
+            frozen.add(run);
+            if (frozen.size() > 4 * TOP_FROZEN) {
+                frozen.sort(Comparator.comparingLong(Frozen::frames).reversed());
+                frozen.subList(TOP_FROZEN, frozen.size()).clear();
+            }
+        }
+
+        // -------------------------
+        // Output
+        // -------------------------
+
+        void print(Path file, long periodMillis) {
+            System.out.printf("%s: %d read-all frames, %d other frames, poll period %d ms (~%s)%n",
+                    file, frames, otherFrames, periodMillis, time(frames, periodMillis));
+
+            System.out.printf("%nErrors%n");
+            System.out.printf("  CRC/end-marker errors   %12d   (%.4f%% of read-all frames)%n",
+                    crcErrors, frames == 0 ? 0.0 : 100.0 * crcErrors / (frames + crcErrors));
+            System.out.printf("  rejected frame starts   %12d%n", rejectedStarts);
+            System.out.printf("  discarded bytes         %12d%n", discardedBytes);
+
+            System.out.printf("%nGaps: %d, %d bytes (~%d frames lost)%n",
+                    gapCount, gapBytes, (gapBytes + frameLength / 2) / frameLength);
+            for (var g : gaps.subList(0, Math.min(TOP_GAPS, gaps.size()))) {
+                System.out.printf("  before frame %12d  ~%-12s  offset %14d  %10d bytes%n",
+                        g.beforeFrame, time(g.beforeFrame, periodMillis), g.offset, g.bytes);
+            }
+
+            System.out.printf("%nFrozen intervals (no field changed): %d, %d frames%n", frozenCount, frozenFrames);
+            for (var r : frozen.subList(0, Math.min(TOP_FROZEN, frozen.size()))) {
+                System.out.printf("  from frame %14d  ~%-12s  offset %14d  %10d frames  ~%s%n",
+                        r.firstFrame, time(r.firstFrame, periodMillis), r.offset, r.frames, time(r.frames, periodMillis));
+            }
+
+            System.out.printf("%nState timeline%n");
+            if (frames > 0) {
+                var state = new StringBuilder();
+                for (var f : FIELDS) {
+                    if ((STATE_SLOTS & (1L << f.index())) != 0 && initial[f.index()] != 0) state.append(' ').append(f.name());
+                }
+                System.out.printf("  %-28s  initially on:%s%n", "frame 0", state.isEmpty() ? " (none)" : state);
+            }
+            for (var e : events) {
+                System.out.printf("  frame %-12d ~%-12s  %-10s %s%n",
+                        e.frame, time(e.frame, periodMillis), e.field.name(), e.on ? "on" : "off");
+            }
+            long total = Arrays.stream(transitions).sum();
+            if (total > events.size()) System.out.printf("  ... %d more%n", total - events.size());
+
+            System.out.printf("%nFields%n");
+            System.out.printf("  %-12s %12s %12s %12s %12s%n", "field", "min", "mean", "max", "changes");
+            for (var f : FIELDS) {
+                int i = f.index();
+                if (frames == 0) break;
+                if (f.scale() == 0) {
+                    System.out.printf("  %-12s %12s %11.2f%% %12s %12d%n",
+                            f.name(), "", 100.0 * sum[i] / frames, "", transitions[i]);
+                } else {
+                    System.out.printf("  %-12s %12s %12s %12s %12s%n",
+                            f.name(),
+                            BigDecimal.valueOf(min[i], f.scale()).toPlainString(),
+                            BigDecimal.valueOf(sum[i], f.scale()).divide(BigDecimal.valueOf(frames), f.scale() + 1,
+                                    RoundingMode.HALF_EVEN).toPlainString(),
+                            BigDecimal.valueOf(max[i], f.scale()).toPlainString(),
+                            "");
+                }
+            }
+        }
+
+        private static String time(long frames, long periodMillis) {
+            long millis = frames * periodMillis;
+            return String.format("%d:%02d:%02d.%d",
+                    millis / 3_600_000, millis / 60_000 % 60, millis / 1000 % 60, millis / 100 % 10);
+        }
+    }
+}
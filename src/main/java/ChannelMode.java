@@ -0,0 +1,9 @@
+/**
+ * How the two channels are combined. Serial and parallel are mutually exclusive;
+ * on the supported models they are one register.
+ */
+public enum ChannelMode {
+    INDEPENDENT,
+    SERIAL,
+    PARALLEL
+}
@@ -0,0 +1,269 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * All outbound traffic of one session, written by a single thread in priority order:
+ * safety cutoffs, then setpoints, then polls. Submitting never blocks on the port.
+ * <p>
+ * Within a priority commands go out FIFO, with two coalescing rules:
+ * <ul>
+ *   <li>at most one poll is queued; further polls are dropped until it is written</li>
+ *   <li>a value setpoint submitted through {@link #submitValue} replaces a still-queued
+ *       one for the same register in place, so a dragged slider sends only the latest
+ *       value; only if nothing but other value setpoints is queued after it, so it never
+ *       jumps ahead of an output, mode or batch write</li>
+ * </ul>
+ * A safety command discards everything queued below it, so a setpoint issued
+ * before the cutoff cannot switch the output back on after it.
+ */
+public final class CommandQueue {
+
+    public enum Priority {
+        SAFETY,
+        SETPOINT,
+        POLL
+    }
+
+    /** Performs the actual port write on the writer thread. */
+    @FunctionalInterface
+    interface Sink {
+        void write(byte[] cmd, int len, Priority priority);
+    }
+
+    private static final int NO_KEY = -1;
+
+    private final Sink sink;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<Command>[] lanes = (ArrayDeque<Command>[]) new ArrayDeque<?>[Priority.values().length];
+    private final ArrayDeque<Command> free = new ArrayDeque<>();
+    private final LatencyHistogram[] waits = new LatencyHistogram[Priority.values().length];
+
+    // guarded by lock
+    private int depth;
+    private int maxDepth;
+    private long coalesced;
+    private long discarded;
+    private boolean closed;
+
+    private final Thread writer;
+
+    CommandQueue(String name, Sink sink) {
+        this.sink = sink;
+        for (int p = 0; p < lanes.length; p++) {
+            lanes[p] = new ArrayDeque<>();
+            waits[p] = new LatencyHistogram();
+        }
+        this.writer = new Thread(this::writeLoop, name);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // -------------------------
+    // Submit (any thread)
+    // -------------------------
+
+    /**
+     * Copies {@code len} bytes of {@code cmd} into the queue.
+     *
+     * @param afterWrite runs on the writer thread right after the bytes went out; may be null
+     * @return false if the command was dropped (queue closed, or a poll already pending)
+     */
+    boolean submit(Priority priority, byte[] cmd, int len, Runnable afterWrite) {
+        return submit(priority, cmd, len, afterWrite, NO_KEY);
+    }
+
+    /**
+     * Queues a single-register value setpoint (voltage or current) on the
+     * {@code SETPOINT} lane, coalescing with a queued write of the same register.
+     */
+    boolean submitValue(byte[] cmd, int len) {
+        return submit(Priority.SETPOINT, cmd, len, null, coalesceKey(cmd, len));
+    }
+
+    private boolean submit(Priority priority, byte[] cmd, int len, Runnable afterWrite, int key) {
+        long now = System.nanoTime();
+
+        lock.lock();
+        try {
+            if (closed) return false;
+
+            var lane = lanes[priority.ordinal()];
+
+            if (priority == Priority.POLL && !lane.isEmpty()) {
+                coalesced++;
+                return false;
+            }
+            if (priority == Priority.SAFETY) discardBelowSafety();
+
+            if (key != NO_KEY) {
+                // Newest first; anything that is not a value setpoint is a barrier
+                for (var it = lane.descendingIterator(); it.hasNext(); ) {
+                    var queued = it.next();
+                    if (queued.key == NO_KEY) break;
+                    if (queued.key == key) {
+                        queued.fill(cmd, len, afterWrite);
+                        coalesced++;
+                        return true;
+                    }
+                }
+            }
+
+            var c = free.isEmpty() ? new Command() : free.poll();
+            c.fill(cmd, len, afterWrite);
+            c.priority = priority;
+            c.key = key;
+            c.enqueuedNanos = now;
+            lane.add(c);
+
+            depth++;
+            maxDepth = Math.max(maxDepth, depth);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void discardBelowSafety() {
+        for (int p = Priority.SETPOINT.ordinal(); p < lanes.length; p++) {
+            Command c;
+            while ((c = lanes[p].poll()) != null) {
+                depth--;
+                discarded++;
+                recycle(c);
+            }
+        }
+    }
+
+    /** Single-register writes (one fixed-size write frame) coalesce on function + address. */
+    private static int coalesceKey(byte[] cmd, int len) {
+        if (len != RegisterEncoder.FRAME_LENGTH) return NO_KEY;
+        return (cmd[2] & 0xFF) << 8 | (cmd[3] & 0xFF);
+    }
+
+    // -------------------------
+    // Writer thread
+    // -------------------------
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                Command c = take();
+                if (c == null) return;
+
+                waits[c.priority.ordinal()].record(System.nanoTime() - c.enqueuedNanos);
+                try {
+                    sink.write(c.bytes, c.len, c.priority);
+                    if (c.afterWrite != null) c.afterWrite.run();
+                } catch (RuntimeException e) {
+                    IO.println("Command write failed: " + e);
+                }
+
+                lock.lock();
+                try {
+                    recycle(c);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Highest-priority command, or null once closed. */
+    private Command take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) return null;
+                for (var lane : lanes) {
+                    var c = lane.poll();
+                    if (c != null) {
+                        depth--;
+                        return c;
+                    }
+                }
+                notEmpty.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recycle(Command c) {
+        c.afterWrite = null;
+        // Transactions can be large; only keep command-sized buffers around.
+        if (c.bytes.length == DeviceCommands.MAX_COMMAND_LENGTH) free.add(c);
+    }
+
+    // -------------------------
+    // Shutdown / metrics
+    // -------------------------
+
+    /** Drops whatever is still queued and stops the writer; an in-flight write completes. */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            for (var lane : lanes) lane.clear();
+            depth = 0;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Thread writerThread() {
+        return writer;
+    }
+
+    public int depth() {
+        lock.lock();
+        try {
+            return depth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(depth, maxDepth, coalesced, discarded);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Time from submit until the writer picked the command up. */
+    public LatencyHistogram waitTime(Priority priority) {
+        return waits[priority.ordinal()];
+    }
+
+    /**
+     * @param coalesced  polls dropped as duplicates plus setpoints overwritten in place
+     * @param discarded  setpoints and polls thrown away by a safety cutoff
+     */
+    public record Stats(int depth, int maxDepth, long coalesced, long discarded) {}
+
+    private static final class Command {
+        byte[] bytes = new byte[DeviceCommands.MAX_COMMAND_LENGTH];
+        int len;
+        int key;
+        Priority priority;
+        long enqueuedNanos;
+        Runnable afterWrite;
+
+        void fill(byte[] cmd, int n, Runnable after) {
+            if (bytes.length < n) bytes = new byte[n];
+            System.arraycopy(cmd, 0, bytes, 0, n);
+            len = n;
+            afterWrite = after;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Many sessions as compact tiles in a scrollable grid.
+ * <p>
+ * The grid is one component: tiles are not Swing children but painted by a single
+ * flyweight {@link TilePainter}, and only for rows inside the clip. A 100 ms Swing
+ * timer reads each visible session's {@link DeviceSession#readLatest} (no callbacks,
+ * no {@code invokeLater} per field) and repaints just the tiles whose frame sequence
+ * moved, so one tick costs one coalesced paint.
+ * <p>
+ * Visible tiles hold {@link PollDemand#FULL}; scrolled-away tiles, a hidden card or a
+ * suspended (minimized) dashboard drop to {@link PollDemand#KEEP_ALIVE}.
+ */
+public final class DashboardView {
+
+    private static final int TICK_MILLIS = 100;
+    private static final long STALE_NANOS = 1_500_000_000L;
+
+    public static DashboardView create(List<DeviceSession> sessions, List<String> names, IntConsumer onOpen) {
+        if (sessions.size() != names.size()) throw new IllegalArgumentException("one name per session");
+        return new DashboardView(sessions, names, onOpen);
+    }
+
+    private final DeviceSession[] sessions;
+    private final String[] names;
+    private final DemandToken[] demand;
+
+    // Per tile, EDT only
+    private final int[][] raw;
+    private final long[] sequence;
+    private final long[] lastChangeNanos;
+    private final boolean[] stale;
+
+    private final Grid grid = new Grid();
+    private final JScrollPane scroll;
+    private final Timer timer;
+    private boolean suspended;
+
+    private DashboardView(List<DeviceSession> sessions, List<String> names, IntConsumer onOpen) {
+        int n = sessions.size();
+        this.sessions = sessions.toArray(DeviceSession[]::new);
+        this.names = names.toArray(String[]::new);
+        this.demand = new DemandToken[n];
+        this.raw = new int[n][Field.count()];
+        this.sequence = new long[n];
+        this.lastChangeNanos = new long[n];
+        this.stale = new boolean[n];
+
+        for (int i = 0; i < n; i++) {
+            demand[i] = this.sessions[i].demand(PollDemand.KEEP_ALIVE);
+            stale[i] = true;
+        }
+
+        grid.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int idx = grid.tileAt(e.getX(), e.getY());
+                if (idx >= 0) onOpen.accept(idx);
+            }
+        });
+
+        scroll = new JScrollPane(grid);
+        scroll.setBorder(BorderFactory.createEmptyBorder());
+        scroll.getViewport().setBackground(Color.BLACK);
+        scroll.getViewport().addChangeListener(_ -> tick());
+        scroll.getViewport().addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                // Column count follows the width, so the grid height changes with it
+                grid.revalidate();
+            }
+        });
+
+        timer = new Timer(TICK_MILLIS, _ -> tick());
+        timer.start();
+    }
+
+    public JComponent view() {
+        return scroll;
+    }
+
+    /** While suspended (e.g. window minimized) no tile asks for full-rate polling. */
+    public void setSuspended(boolean suspended) {
+        this.suspended = suspended;
+        tick();
+    }
+
+    /** Stops the timer and withdraws every demand; the sessions stay open. */
+    public void close() {
+        timer.stop();
+        for (var token : demand) token.close();
+    }
+
+    // -------------------------
+    // Update tick (EDT)
+    // -------------------------
+
+    private void tick() {
+        boolean active = !suspended && grid.isShowing();
+        int first = active ? grid.firstVisibleTile() : 0;
+        int last = active ? grid.lastVisibleTile() : -1;
+        long now = System.nanoTime();
+
+        for (int i = 0; i < sessions.length; i++) {
+            boolean visible = i >= first && i <= last;
+            demand[i].set(visible ? PollDemand.FULL : PollDemand.KEEP_ALIVE);
+            if (!visible) continue;
+
+            long seq = sessions[i].readLatest(raw[i]);
+            boolean dirty = false;
+            if (seq != sequence[i]) {
+                sequence[i] = seq;
+                lastChangeNanos[i] = now;
+                dirty = true;
+            }
+            boolean nowStale = seq == 0 || now - lastChangeNanos[i] > STALE_NANOS;
+            if (nowStale != stale[i]) {
+                stale[i] = nowStale;
+                dirty = true;
+            }
+            if (dirty) grid.repaintTile(i);
+        }
+    }
+
+    // -------------------------
+    // Grid component
+    // -------------------------
+
+    private final class Grid extends JComponent implements Scrollable {
+
+        private static final int TILE_W = 210;
+        private static final int TILE_H = 92;
+        private static final int GAP = 12;
+
+        private final TilePainter painter = new TilePainter();
+
+        Grid() {
+            setOpaque(true);
+            setBackground(Color.BLACK);
+        }
+
+        int columns() {
+            return Math.max(1, (getWidth() - GAP) / (TILE_W + GAP));
+        }
+
+        int rows() {
+            int cols = columns();
+            return (sessions.length + cols - 1) / cols;
+        }
+
+        int firstVisibleTile() {
+            var r = getVisibleRect();
+            int row = Math.max(0, (r.y - GAP) / (TILE_H + GAP));
+            return row * columns();
+        }
+
+        int lastVisibleTile() {
+            var r = getVisibleRect();
+            if (r.isEmpty()) return -1;
+            int row = (r.y + r.height) / (TILE_H + GAP);
+            return Math.min(sessions.length - 1, (row + 1) * columns() - 1);
+        }
+
+        int tileAt(int x, int y) {
+            int col = (x - GAP) / (TILE_W + GAP);
+            int row = (y - GAP) / (TILE_H + GAP);
+            if (x < GAP || y < GAP || col >= columns()) return -1;
+            if ((x - GAP) % (TILE_W + GAP) >= TILE_W || (y - GAP) % (TILE_H + GAP) >= TILE_H) return -1;
+            int idx = row * columns() + col;
+            return idx < sessions.length ? idx : -1;
+        }
+
+        void repaintTile(int idx) {
+            int cols = columns();
+            repaint(tileX(idx % cols), tileY(idx / cols), TILE_W, TILE_H);
+        }
+
+        private static int tileX(int col) {
+            return GAP + col * (TILE_W + GAP);
+        }
+
+        private static int tileY(int row) {
+            return GAP + row * (TILE_H + GAP);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            var clip = g.getClipBounds();
+            g.setColor(Color.BLACK);
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+            int cols = columns();
+            int firstRow = Math.max(0, (clip.y - GAP) / (TILE_H + GAP));
+            int lastRow = Math.min(rows() - 1, (clip.y + clip.height) / (TILE_H + GAP));
+
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int col = 0; col < cols; col++) {
+                    int idx = row * cols + col;
+                    if (idx >= sessions.length) return;
+                    painter.paint((Graphics2D) g, tileX(col), tileY(row), TILE_W, TILE_H,
+                            names[idx], raw[idx], stale[idx]);
+                }
+            }
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            int width = getParent() != null && getParent().getWidth() > 0
+                    ? getParent().getWidth()
+                    : 4 * (TILE_W + GAP) + GAP;
+            int cols = Math.max(1, (width - GAP) / (TILE_W + GAP));
+            int rows = (sessions.length + cols - 1) / cols;
+            return new Dimension(cols * (TILE_W + GAP) + GAP, rows * (TILE_H + GAP) + GAP);
+        }
+
+        @Override
+        public Dimension getPreferredScrollableViewportSize() {
+            return getPreferredSize();
+        }
+
+        @Override
+        public int getScrollableUnitIncrement(Rectangle visible, int orientation, int direction) {
+            return (TILE_H + GAP) / 4;
+        }
+
+        @Override
+        public int getScrollableBlockIncrement(Rectangle visible, int orientation, int direction) {
+            return Math.max(TILE_H + GAP, visible.height - (TILE_H + GAP));
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportWidth() {
+            return true;
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportHeight() {
+            return false;
+        }
+    }
+}
+
+/* ============================================================
+ * Flyweight tile painter
+ * ============================================================ */
+
+/**
+ * Paints one dashboard tile straight from raw field values. Shared by all tiles;
+ * formats into a reused char buffer, so painting allocates nothing per tile.
+ */
+final class TilePainter {
+
+    private static final Color DISPLAY_BLUE = new Color(80, 160, 255);
+    private static final Font NAME_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 11);
+    private static final Font VALUE_FONT = new Font(Font.MONOSPACED, Font.BOLD, 17);
+    private static final Font TAG_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+
+    private final char[] chars = new char[8];
+
+    void paint(Graphics2D g, int x, int y, int w, int h, String name, int[] raw, boolean stale) {
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+        g.setColor(Color.BLACK);
+        g.fillRect(x, y, w, h);
+        g.setColor(stale ? Color.DARK_GRAY : Color.WHITE);
+        g.drawRect(x, y, w - 1, h - 1);
+
+        g.setFont(NAME_FONT);
+        g.drawString(name, x + 8, y + 15);
+
+        // Output LED
+        g.setColor(raw[Field.OUTPUT.index()] != 0 ? Color.RED : Color.DARK_GRAY);
+        g.fillOval(x + w - 18, y + 6, 10, 10);
+
+        channel(g, x + 8, y + 46, "1", raw, Field.CH1_V_MEAS, Field.CH1_I_MEAS, Field.CH1_CV, Field.CH1_CC, stale);
+        channel(g, x + 8, y + 78, "2", raw, Field.CH2_V_MEAS, Field.CH2_I_MEAS, Field.CH2_CV, Field.CH2_CC, stale);
+    }
+
+    private void channel(
+            Graphics2D g, int x, int baseline, String label, int[] raw,
+            Field<?> volts, Field<?> amps, Field<?> cv, Field<?> cc, boolean stale
+    ) {
+        g.setFont(TAG_FONT);
+        g.setColor(Color.GRAY);
+        g.drawString(label, x, baseline);
+
+        g.setFont(VALUE_FONT);
+        g.setColor(stale ? Color.GRAY : DISPLAY_BLUE);
+        int n = format(raw[volts.index()], volts.scale(), 2);
+        chars[n] = 'V';
+        g.drawChars(chars, 0, n + 1, x + 14, baseline);
+
+        n = format(raw[amps.index()], amps.scale(), 1);
+        chars[n] = 'A';
+        g.drawChars(chars, 0, n + 1, x + 94, baseline);
+
+        g.setFont(TAG_FONT);
+        boolean isCv = raw[cv.index()] != 0;
+        boolean isCc = raw[cc.index()] != 0;
+        if (isCv || isCc) {
+            g.setColor(isCc ? Color.RED : Color.GREEN);
+            g.drawString(isCc ? "CC" : "CV", x + 174, baseline);
+        }
+    }
+
+    /** Writes {@code raw} with {@code scale} decimals, left-padded to {@code intDigits}; returns the length. */
+    private int format(int raw, int scale, int intDigits) {
+        int intLen = 1;
+        int whole = raw;
+        for (int i = 0; i < scale; i++) whole /= 10;
+        for (; whole >= 10; whole /= 10) intLen++;
+
+        int units = Math.max(intDigits, intLen) - 1;
+        int total = units + 2 + scale;
+        int v = raw;
+        for (int i = total - 1; i >= 0; i--) {
+            if (i == units + 1) {
+                chars[i] = '.';
+                continue;
+            }
+            int d = v % 10;
+            v /= 10;
+            // Blank leading zeros, keep the units digit
+            chars[i] = (i < units && d == 0 && v == 0) ? ' ' : (char) ('0' + d);
+        }
+        return total;
+    }
+}
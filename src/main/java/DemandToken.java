@@ -0,0 +1,32 @@
+/**
+ * One consumer's claim on a session's poll rate; see {@link DeviceSession#demand(PollDemand)}.
+ * Closing the token withdraws the claim. Idempotent; safe from any thread.
+ */
+public final class DemandToken implements AutoCloseable {
+
+    private final DeviceSession session;
+    private PollDemand level;
+    private boolean closed;
+
+    DemandToken(DeviceSession session, PollDemand level) {
+        this.session = session;
+        this.level = level;
+    }
+
+    public synchronized PollDemand level() {
+        return level;
+    }
+
+    public synchronized void set(PollDemand next) {
+        if (closed || next == level) return;
+        session.changeDemand(level, next);
+        level = next;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        session.changeDemand(level, null);
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Quantities computed from decoded frames rather than read from the device.
+ * Counterpart of {@link Field} for {@link DerivedQuantities}; values are plain doubles.
+ */
+public final class DerivedField {
+
+    // =========================
+    // Public "enum-like" fields
+    // =========================
+
+    public static final DerivedField CH1_POWER  = new DerivedField(0, "CH1_POWER", "W");
+    public static final DerivedField CH1_ENERGY = new DerivedField(1, "CH1_ENERGY", "Wh");
+    public static final DerivedField CH1_CHARGE = new DerivedField(2, "CH1_CHARGE", "Ah");
+
+    public static final DerivedField CH2_POWER  = new DerivedField(3, "CH2_POWER", "W");
+    public static final DerivedField CH2_ENERGY = new DerivedField(4, "CH2_ENERGY", "Wh");
+    public static final DerivedField CH2_CHARGE = new DerivedField(5, "CH2_CHARGE", "Ah");
+
+    private static final DerivedField[] ALL = {
+            CH1_POWER,
+            CH1_ENERGY,
+            CH1_CHARGE,
+            CH2_POWER,
+            CH2_ENERGY,
+            CH2_CHARGE
+    };
+
+    public static DerivedField[] values() {
+        return ALL.clone();
+    }
+
+    static int count() {
+        return ALL.length;
+    }
+
+    // =========================
+    // Instance part
+    // =========================
+
+    private final int index;
+    private final String name;
+    private final String unit;
+
+    private DerivedField(int index, String name, String unit) {
+        this.index = index;
+        this.name = name;
+        this.unit = unit;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String unit() {
+        return unit;
+    }
+
+    int index() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,146 @@
+import java.util.Arrays;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Per-channel power, energy and charge, computed from every read-all frame.
+ * <p>
+ * Power is instantaneous V*I. Energy (Wh) and charge (Ah) are trapezoidal
+ * integrals over the actual frame timestamps. When the session goes stale the
+ * interval across the gap is not integrated; accumulation resumes with the next
+ * fresh frame. Constant time and no allocation per frame.
+ */
+public final class DerivedQuantities implements FrameStage {
+
+    private static final double NANOS_PER_HOUR = 3_600_000_000_000.0;
+
+    private static final long FIELDS_READ = FrameDecoder.maskOf(
+            Field.CH1_V_MEAS, Field.CH1_I_MEAS, Field.CH2_V_MEAS, Field.CH2_I_MEAS);
+
+    private final Channel ch1 = new Channel(
+            Field.CH1_V_MEAS, Field.CH1_I_MEAS,
+            DerivedField.CH1_POWER, DerivedField.CH1_ENERGY, DerivedField.CH1_CHARGE);
+    private final Channel ch2 = new Channel(
+            Field.CH2_V_MEAS, Field.CH2_I_MEAS,
+            DerivedField.CH2_POWER, DerivedField.CH2_ENERGY, DerivedField.CH2_CHARGE);
+
+    private final double[] latest = new double[DerivedField.count()];
+
+    // Copy-on-write per field, so dispatch iterates a plain array
+    private volatile DoubleConsumer[][] listeners = new DoubleConsumer[DerivedField.count()][0];
+
+    private volatile boolean gap = true;
+    private volatile boolean resetRequested;
+
+    DerivedQuantities() {
+    }
+
+    // -------------------------
+    // Public API
+    // -------------------------
+
+    public synchronized void on(DerivedField field, DoubleConsumer cb) {
+        var next = listeners.clone();
+        var current = next[field.index()];
+        var grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = cb;
+        next[field.index()] = grown;
+        listeners = next;
+    }
+
+    /** Zeroes energy and charge; applied on the parser thread with the next frame. */
+    public void resetIntegrals() {
+        resetRequested = true;
+    }
+
+    /** Last published value; racy read intended for display and diagnostics. */
+    public double latest(DerivedField field) {
+        return latest[field.index()];
+    }
+
+    // -------------------------
+    // FrameStage
+    // -------------------------
+
+    @Override
+    public void onFrame(FrameDecoder frame, long frameNanos) {
+        boolean reset = resetRequested;
+        if (reset) resetRequested = false;
+
+        boolean afterGap = gap;
+        if (afterGap) gap = false;
+
+        ch1.update(frame, frameNanos, afterGap, reset);
+        ch2.update(frame, frameNanos, afterGap, reset);
+    }
+
+    @Override
+    public void onStale() {
+        gap = true;
+    }
+
+    @Override
+    public long fieldMask() {
+        return FIELDS_READ;
+    }
+
+    // -------------------------
+    // Per channel state
+    // -------------------------
+
+    private final class Channel {
+
+        private final Field<?> voltage;
+        private final Field<?> current;
+        private final double voltsPerRaw;
+        private final double ampsPerRaw;
+        private final DerivedField powerField;
+        private final DerivedField energyField;
+        private final DerivedField chargeField;
+
+        private long lastNanos;
+        private double lastWatts;
+        private double lastAmps;
+        private double wattNanos;
+        private double ampNanos;
+
+        Channel(Field<?> voltage, Field<?> current,
+                DerivedField power, DerivedField energy, DerivedField charge) {
+            this.voltage = voltage;
+            this.current = current;
+            this.voltsPerRaw = Math.pow(10, -voltage.scale());
+            this.ampsPerRaw = Math.pow(10, -current.scale());
+            this.powerField = power;
+            this.energyField = energy;
+            this.chargeField = charge;
+        }
+
+        void update(FrameDecoder frame, long nowNanos, boolean afterGap, boolean reset) {
+            double amps = frame.raw(current) * ampsPerRaw;
+            double watts = frame.raw(voltage) * voltsPerRaw * amps;
+
+            if (reset) {
+                wattNanos = 0;
+                ampNanos = 0;
+            }
+
+            if (!afterGap) {
+                long dt = nowNanos - lastNanos;
+                wattNanos += (watts + lastWatts) * 0.5 * dt;
+                ampNanos += (amps + lastAmps) * 0.5 * dt;
+            }
+
+            lastNanos = nowNanos;
+            lastWatts = watts;
+            lastAmps = amps;
+
+            publish(powerField, watts);
+            publish(energyField, wattNanos / NANOS_PER_HOUR);
+            publish(chargeField, ampNanos / NANOS_PER_HOUR);
+        }
+    }
+
+    private void publish(DerivedField field, double value) {
+        latest[field.index()] = value;
+        for (var l : listeners[field.index()]) l.accept(value);
+    }
+}
@@ -1,10 +1,14 @@
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.ByteBuffer;
 
 /**
  * Builds command frames according to the PeakTech 2CH protocol.
  * All commands:
  * F7 ... CRC_LO CRC_HI FD
+ * <p>
+ * Register addresses come from the {@link RegisterMap}; the overloads without
+ * a map use {@link RegisterMaps#defaultMap()}.
  */
 public final class DeviceCommands {
 
@@ -16,99 +20,102 @@ public final class DeviceCommands {
     // -------------------------------------------------
 
     public static byte[] readAll() {
-        return withCrcAndEnd(new byte[]{
-                (byte) 0xF7,
-                (byte) 0x02,
-                (byte) 0x03,
-                (byte) 0x04,
-                (byte) 0x09
-        });
+        return readAll(RegisterMaps.defaultMap());
     }
 
     public static byte[] setVoltage(int channel, BigDecimal voltage) {
-        return setU16(
-                voltage,
-                2,
-                100,
-                (byte) 0x0A,
-                channel == 1 ? (byte) 0x0B : (byte) 0x09
-        );
+        return setVoltage(RegisterMaps.defaultMap(), channel, voltage);
     }
 
     public static byte[] setCurrent(int channel, BigDecimal current) {
-        return setU16(
-                current,
-                3,
-                1000,
-                (byte) 0x0A,
-                channel == 1 ? (byte) 0x0C : (byte) 0x0A
-        );
+        return setCurrent(RegisterMaps.defaultMap(), channel, current);
     }
 
     public static byte[] setOutput(boolean on) {
-        return setFlag((byte) 0x1E, on ? 1 : 0);
+        return setOutput(RegisterMaps.defaultMap(), on);
     }
 
     public static byte[] setSerial(boolean on) {
-        return setFlag((byte) 0x1F, on ? 1 : 0);
+        return setSerial(RegisterMaps.defaultMap(), on);
     }
 
     public static byte[] setParallel(boolean on) {
-        return setFlag((byte) 0x1F, on ? 2 : 0);
+        return setParallel(RegisterMaps.defaultMap(), on);
+    }
+
+    // -------------------------------------------------
+    // Per model
+    // -------------------------------------------------
+
+    public static byte[] readAll(RegisterMap map) {
+        return map.readAllCommand();
+    }
+
+    public static byte[] setVoltage(RegisterMap map, int channel, BigDecimal voltage) {
+        return setU16(map, channel == 1 ? Field.CH1_V_SET : Field.CH2_V_SET, voltage);
+    }
+
+    public static byte[] setCurrent(RegisterMap map, int channel, BigDecimal current) {
+        return setU16(map, channel == 1 ? Field.CH1_I_SET : Field.CH2_I_SET, current);
+    }
+
+    public static byte[] setOutput(RegisterMap map, boolean on) {
+        return map.encoder(Field.OUTPUT).encodeFlag(on);
+    }
+
+    public static byte[] setSerial(RegisterMap map, boolean on) {
+        return map.encoder(Field.SERIAL).encodeFlag(on);
+    }
+
+    public static byte[] setParallel(RegisterMap map, boolean on) {
+        return map.encoder(Field.PARALLEL).encodeFlag(on);
+    }
+
+    // -------------------------------------------------
+    // Zero-allocation encoding into caller buffers
+    // -------------------------------------------------
+
+    /** Largest command any encoder below writes. */
+    public static final int MAX_COMMAND_LENGTH = RegisterEncoder.FRAME_LENGTH;
+
+    /**
+     * Encodes a raw register write ({@code raw} in the field's fixed-point units,
+     * e.g. centivolts for CH1_V_SET) into {@code dst} at {@code off}.
+     *
+     * @return number of bytes written
+     */
+    public static int encodeRaw(RegisterMap map, Field<?> field, int raw, byte[] dst, int off) {
+        return map.encoder(field).encodeInto(raw, dst, off);
+    }
+
+    public static void encodeRaw(RegisterMap map, Field<?> field, int raw, ByteBuffer dst) {
+        map.encoder(field).encodeInto(raw, dst);
+    }
+
+    public static int encodeFlag(RegisterMap map, Field<Boolean> field, boolean on, byte[] dst, int off) {
+        var encoder = map.encoder(field);
+        return encoder.encodeInto(encoder.flagValue(on), dst, off);
+    }
+
+    public static int encodeReadAll(RegisterMap map, byte[] dst, int off) {
+        byte[] frame = map.readAllFrame();
+        System.arraycopy(frame, 0, dst, off, frame.length);
+        return frame.length;
     }
 
     // -------------------------------------------------
     // Internals
     // -------------------------------------------------
 
-    private static byte[] setFlag(byte address, int value) {
-        return withCrcAndEnd(new byte[]{
-                (byte) 0xF7,
-                (byte) 0x02,
-                (byte) 0x0A,
-                address,
-                (byte) 0x01,
-                (byte) 0x00,
-                (byte) value
-        });
-    }
-
-    private static byte[] setU16(
-            BigDecimal value,
-            int scale,
-            int factor,
-            byte function,
-            byte address
-    ) {
-        BigDecimal scaled = value.setScale(scale, RoundingMode.UNNECESSARY);
-        int raw = scaled.multiply(BigDecimal.valueOf(factor)).intValueExact();
-
-        byte hi = (byte) ((raw >> 8) & 0xFF);
-        byte lo = (byte) (raw & 0xFF);
-
-        return withCrcAndEnd(new byte[]{
-                (byte) 0xF7,
-                (byte) 0x02,
-                function,
-                address,
-                (byte) 0x01,
-                hi,
-                lo
-        });
-    }
-
-    private static byte[] withCrcAndEnd(byte[] payload) {
-        int crc = Crc16Modbus.compute(payload, payload.length);
-
-        byte crcLo = (byte) (crc & 0xFF);
-        byte crcHi = (byte) ((crc >> 8) & 0xFF);
-
-        byte[] out = new byte[payload.length + 3];
-        System.arraycopy(payload, 0, out, 0, payload.length);
-        out[payload.length] = crcLo;
-        out[payload.length + 1] = crcHi;
-        out[payload.length + 2] = (byte) 0xFD;
-
-        return out;
+    private static byte[] setU16(RegisterMap map, Field<BigDecimal> field, BigDecimal value) {
+        return map.encoder(field).encode(toRaw(field, value));
+    }
+
+    /** Exact conversion to the field's fixed-point units; more decimals than the field has is an error. */
+    static int toRaw(Field<BigDecimal> field, BigDecimal value) {
+        return value
+                .setScale(field.scale(), RoundingMode.UNNECESSARY)
+                .unscaledValue()
+                .intValueExact();
     }
 }
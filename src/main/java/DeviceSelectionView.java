@@ -9,7 +9,8 @@ public final class DeviceSelectionView {
 
     public static JComponent createView(
             List<SerialPortInfo> ports,
-            Consumer<SerialPortInfo> onSelect
+            Consumer<SerialPortInfo> onSelect,
+            Runnable onDashboard
     ) {
         var root = LabPanel.border(40);
 
@@ -25,6 +26,12 @@ public final class DeviceSelectionView {
                     "No supported device found.\nPlease connect a device and restart."
             ));
         } else {
+            var all = LabButton.create("All devices (dashboard)");
+            all.addActionListener(_ -> onDashboard.run());
+
+            content.add(all);
+            content.add(Box.createVerticalStrut(30));
+
             for (var port : ports) {
                 var button = LabButton.create(port.toString());
                 button.addActionListener(_ -> onSelect.accept(port));
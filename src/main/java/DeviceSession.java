@@ -1,9 +1,20 @@
 import com.fazecast.jSerialComm.SerialPort;
+import com.fazecast.jSerialComm.SerialPortDataListener;
+import com.fazecast.jSerialComm.SerialPortEvent;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
 /**
@@ -17,76 +28,277 @@ public final class DeviceSession {
     // -------------------------
 
     public static DeviceSession create(String comPort) {
+        return create(comPort, RegisterMaps.defaultMap());
+    }
+
+    public static DeviceSession create(String comPort, RegisterMap map) {
+        return create(comPort, map, ReadMode.EVENT);
+    }
+
+    public static DeviceSession create(String comPort, RegisterMap map, ReadMode readMode) {
+        // A previous session on the same port must be fully closed before we reopen it.
+        var previous = OPEN_SESSIONS.get(comPort);
+        if (previous != null) previous.stop();
+
+        // Before the port opens, so a broken calibration file cannot leak it
+        var calibration = Calibration.forDevice(comPort);
+
+        long openStart = System.nanoTime();
         var port = SerialPort.getCommPort(comPort);
 
-        port.setBaudRate(9600);
+        port.setBaudRate(BAUD_RATE);
         port.setNumDataBits(8);
         port.setNumStopBits(SerialPort.ONE_STOP_BIT);
         port.setParity(SerialPort.NO_PARITY);
-        port.setComPortTimeouts(SerialPort.TIMEOUT_READ_BLOCKING, 200, 0);
+        port.setComPortTimeouts(readMode.timeoutMode, 0, 0);
 
         if (!port.openPort()) {
             throw new IllegalStateException("Unable to open port: " + comPort);
         }
 
-        var session = new DeviceSession(port);
+        var session = new DeviceSession(comPort, port, map, readMode);
+        session.setCalibration(calibration);
+        OPEN_SESSIONS.put(comPort, session);
         session.start();
+        session.openNanos = System.nanoTime() - openStart;
         return session;
     }
 
+    private static final Map<String, DeviceSession> OPEN_SESSIONS = new ConcurrentHashMap<>();
+
+    /**
+     * How received bytes get from the port to the frame parser.
+     */
+    public enum ReadMode {
+        /**
+         * jSerialComm data-available listener drains the port and hands bytes to a
+         * parser virtual thread. No thread wakes while the line is idle.
+         */
+        EVENT(SerialPort.TIMEOUT_NONBLOCKING),
+
+        /**
+         * Dedicated reader thread in a semi-blocking read without timeout: returns as
+         * soon as any byte arrives, never on a timer.
+         */
+        SEMI_BLOCKING(SerialPort.TIMEOUT_READ_SEMI_BLOCKING);
+
+        private final int timeoutMode;
+
+        ReadMode(int timeoutMode) {
+            this.timeoutMode = timeoutMode;
+        }
+    }
+
+    /**
+     * OPENING until the worker threads run, RUNNING while polling, DRAINING while
+     * {@link #stop()} waits for the workers, CLOSED once the port is released.
+     */
+    public enum State {
+        OPENING,
+        RUNNING,
+        DRAINING,
+        CLOSED
+    }
+
+    /**
+     * @param openNanos          port open until workers started
+     * @param shutdownNanos      {@link #stop()} entry until CLOSED; -1 while not closed
+     * @param shutdownTimedOut   a worker was still alive when the deadline passed
+     */
+    public record LifecycleTimings(
+            long openNanos,
+            long shutdownNanos,
+            boolean shutdownTimedOut
+    ) {}
+
+    private static final long SHUTDOWN_DEADLINE_NANOS = 500_000_000L;
+    private static final long POLL_TICK_NANOS = 100_000_000L;
+    private static final long KEEP_ALIVE_NANOS = 2_000_000_000L;
+    private static final int BAUD_RATE = 9600;
+
+    /** {@code -Dlab.traceIo=true} prints every sent command and received chunk; off by default, it allocates and blocks on stdout. */
+    private static final boolean TRACE_IO = Boolean.getBoolean("lab.traceIo");
+
     // -------------------------
     // Instance state
     // -------------------------
 
+    private final String comPort;
     private final SerialPort port;
+    private final RegisterMap map;
+    private final ReadMode readMode;
     private final Object writeLock = new Object();
+    private final byte[] txBuffer = new byte[DeviceCommands.MAX_COMMAND_LENGTH];
 
+    private final AtomicReference<State> state = new AtomicReference<>(State.OPENING);
+    private final CountDownLatch closed = new CountDownLatch(1);
     private volatile boolean running;
+    private volatile long openNanos;
+    private volatile long shutdownNanos = -1;
+    private volatile boolean shutdownTimedOut;
     private volatile boolean updatesEnabled;
+    private volatile Calibration calibration = Calibration.identity();
 
     private Thread readerThread;
     private Thread pollThread;
+    private CommandQueue commands;
 
-    private final FrameBuffer frameBuffer = new FrameBuffer();
+    private final FrameBuffer frameBuffer;
+    private final RxHandoff rxHandoff = new RxHandoff(8192);
 
     private final UpdateCoordinator coordinator;
 
-    private final Map<Field<?>, Consumer<?>> callbacks = new HashMap<>();
-    private final Object[] lastValues = new Object[Field.values().length];
+    // Copy-on-write per field index; callbackMask has a bit for every field with a listener
+    private volatile Consumer<?>[][] callbacks = new Consumer<?>[Field.count()][0];
+    private volatile long callbackMask;
+    private final FrameDecoder decoder;
+    private final List<Consumer<DeviceSnapshot>> snapshotListeners = new CopyOnWriteArrayList<>();
+    private final List<FrameStage> stages = new CopyOnWriteArrayList<>();
+    private final DerivedQuantities derived = new DerivedQuantities();
+    private final FieldStatistics statistics = new FieldStatistics();
+    private final SnapshotSeqlock latest = new SnapshotSeqlock();
+    private final LimitEngine limits;
+    private final byte[] safetyBuffer = new byte[DeviceCommands.MAX_COMMAND_LENGTH];
+    private volatile boolean cutoffPending;
+    private final Runnable markPollSent = this::pollSent;
+    private final PendingReads pendingReads = new PendingReads();
+    private volatile boolean externalPolling;
+    private long dispatchRequestNanos;   // parser thread only
+    private final FrameLatency latency = new FrameLatency();
+
+    // Open demand tokens per PollDemand level, guarded by demandLock
+    private final ReentrantLock demandLock = new ReentrantLock();
+    private final Condition demandChanged = demandLock.newCondition();
+    private final int[] demandCounts = new int[PollDemand.values().length];
+    private long demandVersion;
 
     private Runnable onStale;
     private Runnable onFresh;
 
-    private DeviceSession(SerialPort port) {
+    private DeviceSession(String comPort, SerialPort port, RegisterMap map, ReadMode readMode) {
+        this.comPort = comPort;
         this.port = port;
+        this.map = map;
+        this.readMode = readMode;
+        this.decoder = new FrameDecoder(map);
+        this.frameBuffer = new FrameBuffer(map);
         this.coordinator = new UpdateCoordinator(
-                () -> run(onStale),
+                this::stale,
                 () -> run(onFresh)
         );
+        this.limits = new LimitEngine(this::emergencyOutputOff, transactionNanos(map, BAUD_RATE), this::signalDemand);
+        stages.add(derived);
+        stages.add(statistics);
+        stages.add(latest);
     }
 
     // -------------------------
     // Lifecycle
     // -------------------------
 
+    /**
+     * Stops polling, releases the port and waits (bounded by a deadline) until every
+     * worker thread has exited. Idempotent; concurrent callers all return once CLOSED.
+     */
     public void stop() {
+        if (!state.compareAndSet(State.RUNNING, State.DRAINING)
+                && !state.compareAndSet(State.OPENING, State.DRAINING)) {
+            awaitClosed();
+            return;
+        }
+
+        long begin = System.nanoTime();
+        long deadline = begin + SHUTDOWN_DEADLINE_NANOS;
+
         running = false;
+        if (readMode == ReadMode.EVENT) port.removeDataListener();
         if (readerThread != null) readerThread.interrupt();
         if (pollThread != null) pollThread.interrupt();
+        if (commands != null) commands.close();
 
+        // Closing the port also unblocks a reader stuck in readBytes.
         synchronized (writeLock) {
             port.closePort();
         }
+
+        boolean timedOut = !join(readerThread, deadline)
+                | !join(pollThread, deadline)
+                | !join(commands == null ? null : commands.writerThread(), deadline);
+        if (timedOut) {
+            IO.println("Session " + comPort + ": worker still alive after shutdown deadline.");
+        }
+
+        OPEN_SESSIONS.remove(comPort, this);
+        shutdownTimedOut = timedOut;
+        shutdownNanos = System.nanoTime() - begin;
+        state.set(State.CLOSED);
+        closed.countDown();
+    }
+
+    public State state() {
+        return state.get();
+    }
+
+    public String comPort() {
+        return comPort;
+    }
+
+    RegisterMap map() {
+        return map;
+    }
+
+    public LifecycleTimings lifecycleTimings() {
+        return new LifecycleTimings(openNanos, shutdownNanos, shutdownTimedOut);
+    }
+
+    private void awaitClosed() {
+        try {
+            if (!closed.await(SHUTDOWN_DEADLINE_NANOS, TimeUnit.NANOSECONDS)) {
+                IO.println("Session " + comPort + ": still closing after shutdown deadline.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Joins {@code t} until {@code deadline}; a worker stopping itself is not waited for. */
+    private static boolean join(Thread t, long deadline) {
+        if (t == null || t == Thread.currentThread()) return true;
+        try {
+            long remaining = deadline - System.nanoTime();
+            if (remaining > 0) t.join(Duration.ofNanos(remaining));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !t.isAlive();
     }
 
     private void start() {
         running = true;
 
-        readerThread = new Thread(this::readerLoop, "device-session-reader");
+        if (readMode == ReadMode.EVENT) {
+            readerThread = Thread.ofVirtual().name("device-session-parser").unstarted(this::parseLoop);
+            port.addDataListener(new SerialPortDataListener() {
+                @Override
+                public int getListeningEvents() {
+                    return SerialPort.LISTENING_EVENT_DATA_AVAILABLE;
+                }
+
+                @Override
+                public void serialEvent(SerialPortEvent event) {
+                    drainPort();
+                }
+            });
+        } else {
+            readerThread = new Thread(this::readerLoop, "device-session-reader");
+        }
         pollThread = new Thread(this::pollLoop, "device-session-poller");
+        commands = new CommandQueue("device-session-writer", this::writeToPort);
 
         readerThread.start();
         pollThread.start();
+
+        state.compareAndSet(State.OPENING, State.RUNNING);
     }
 
     // -------------------------
@@ -97,6 +309,59 @@ public final class DeviceSession {
         updatesEnabled = enabled;
         coordinator.setUpdatesEnabled(enabled);
         if (!enabled) coordinator.forceStale();
+        signalDemand();
+    }
+
+    /**
+     * Claims a poll rate until the returned token is closed. The session polls at the
+     * highest level of all open tokens, at FULL while limit rules are armed, and parks
+     * when neither asks for data.
+     */
+    public DemandToken demand(PollDemand level) {
+        changeDemand(null, level);
+        return new DemandToken(this, level);
+    }
+
+    public PollDemand effectiveDemand() {
+        if (!updatesEnabled) return PollDemand.PARKED;
+        if (limits.hasRules()) return PollDemand.FULL;
+
+        demandLock.lock();
+        try {
+            for (int i = demandCounts.length - 1; i > 0; i--) {
+                if (demandCounts[i] > 0) return PollDemand.values()[i];
+            }
+            return PollDemand.PARKED;
+        } finally {
+            demandLock.unlock();
+        }
+    }
+
+    /** Moves one token from {@code from} to {@code to}; either may be null. */
+    void changeDemand(PollDemand from, PollDemand to) {
+        demandLock.lock();
+        try {
+            if (from != null) demandCounts[from.ordinal()]--;
+            if (to != null) demandCounts[to.ordinal()]++;
+        } finally {
+            demandLock.unlock();
+        }
+        signalDemand();
+    }
+
+    private void signalDemand() {
+        demandLock.lock();
+        try {
+            demandVersion++;
+            demandChanged.signalAll();
+        } finally {
+            demandLock.unlock();
+        }
+    }
+
+    /** Bytes lost because the parser fell behind the serial event thread (EVENT mode only). */
+    public long droppedRxBytes() {
+        return rxHandoff.droppedBytes();
     }
 
     public void setOnStale(Runnable r) {
@@ -111,46 +376,236 @@ public final class DeviceSession {
     // Callback registration
     // -------------------------
 
-    public <T> void on(Field<T> field, Consumer<T> cb) {
-        callbacks.put(field, cb);
+    /**
+     * Calls {@code cb} with every change of {@code field}. Fields nobody listens to (and
+     * no stage reads) are not decoded at all.
+     */
+    public <T> Subscription on(Field<T> field, Consumer<T> cb) {
+        updateCallbacks(field.index(), cb, true);
+        return () -> updateCallbacks(field.index(), cb, false);
+    }
+
+    private synchronized void updateCallbacks(int idx, Consumer<?> cb, boolean add) {
+        var next = callbacks.clone();
+        var current = next[idx];
+        if (add) {
+            next[idx] = Arrays.copyOf(current, current.length + 1);
+            next[idx][current.length] = cb;
+        } else {
+            next[idx] = Arrays.stream(current).filter(c -> c != cb).toArray(Consumer<?>[]::new);
+        }
+
+        long mask = 0;
+        for (int i = 0; i < next.length; i++) {
+            if (next[i].length > 0) mask |= 1L << i;
+        }
+        callbacks = next;
+        callbackMask = mask;
+    }
+
+    /**
+     * Replaces the gain/offset correction, e.g. with {@link Calibration#forDevice} keyed
+     * by device ID instead of port. Measured values change with the next frame,
+     * setpoints with the next write.
+     */
+    public void setCalibration(Calibration calibration) {
+        this.calibration = calibration;
+        decoder.setCalibration(calibration);
+    }
+
+    public Calibration calibration() {
+        return calibration;
+    }
+
+    /** Outbound queue depth, coalescing and per-priority wait times. */
+    public CommandQueue commands() {
+        return commands;
+    }
+
+    /** Per-stage latency histograms from TX to EDT; see {@link FrameLatency}. */
+    public FrameLatency latency() {
+        return latency;
+    }
+
+    /** Software limits evaluated on every frame, before field callbacks. */
+    public LimitEngine limits() {
+        return limits;
+    }
+
+    /** Power, energy and charge per channel, updated with every frame. */
+    public DerivedQuantities derived() {
+        return derived;
+    }
+
+    /** Rolling mean/stddev/min/max of numeric fields; see {@link FieldStatistics#track}. */
+    public FieldStatistics statistics() {
+        return statistics;
+    }
+
+    void addStage(FrameStage stage) {
+        stages.add(stage);
+    }
+
+    void removeStage(FrameStage stage) {
+        stages.remove(stage);
+    }
+
+    /**
+     * Latest field values, consistent within one frame, from any thread without locking.
+     * The first call starts publication; until the next frame arrives the result is
+     * {@linkplain LatestSnapshot#isEmpty() empty}.
+     */
+    public LatestSnapshot latestSnapshot() {
+        return latest.read();
+    }
+
+    /**
+     * Allocation-free variant of {@link #latestSnapshot()}: copies raw values by
+     * {@link Field#index()} into {@code dst} and returns the frame sequence number.
+     */
+    public long readLatest(int[] dst) {
+        return latest.readInto(dst);
+    }
+
+    /** {@link System#nanoTime()} when the frame {@link #readLatest} returns completed; 0 before the first. */
+    long latestFrameNanos() {
+        return latest.frameNanos();
+    }
+
+    /**
+     * Receives a full snapshot for every valid read-all frame.
+     * Built from the same decode pass as the field callbacks.
+     */
+    public Subscription onSnapshot(Consumer<DeviceSnapshot> cb) {
+        snapshotListeners.add(cb);
+        return () -> snapshotListeners.remove(cb);
     }
 
     // -------------------------
-    // Writes (immediate)
+    // Writes (queued, never block the caller)
     // -------------------------
 
     public void setCh1Voltage(BigDecimal v) {
-        writeNow(DeviceCommands.setVoltage(1, v));
+        setRaw(Field.CH1_V_SET, DeviceCommands.toRaw(Field.CH1_V_SET, v));
     }
 
     public void setCh1Current(BigDecimal a) {
-        writeNow(DeviceCommands.setCurrent(1, a));
+        setRaw(Field.CH1_I_SET, DeviceCommands.toRaw(Field.CH1_I_SET, a));
     }
 
     public void setCh2Voltage(BigDecimal v) {
-        writeNow(DeviceCommands.setVoltage(2, v));
+        setRaw(Field.CH2_V_SET, DeviceCommands.toRaw(Field.CH2_V_SET, v));
     }
 
     public void setCh2Current(BigDecimal a) {
-        writeNow(DeviceCommands.setCurrent(2, a));
+        setRaw(Field.CH2_I_SET, DeviceCommands.toRaw(Field.CH2_I_SET, a));
     }
 
     public void setOutput(boolean on) {
-        writeNow(DeviceCommands.setOutput(on));
+        enqueue(DeviceCommands.setOutput(map, on));
     }
 
     public void setSerial(boolean on) {
-        writeNow(DeviceCommands.setSerial(on));
+        enqueue(DeviceCommands.setSerial(map, on));
     }
 
     public void setParallel(boolean on) {
-        writeNow(DeviceCommands.setParallel(on));
+        enqueue(DeviceCommands.setParallel(map, on));
+    }
+
+    /**
+     * Writes a setpoint in raw fixed-point units (centivolts for *_V_SET, milliamps for *_I_SET),
+     * inverse-corrected by the session's {@link Calibration}.
+     * Encodes into a reused buffer that the queue copies from; no BigDecimal, no allocation
+     * once the queue's command pool is warm.
+     */
+    public void setRaw(Field<BigDecimal> setpoint, int raw) {
+        synchronized (txBuffer) {
+            int n = DeviceCommands.encodeRaw(map, setpoint, calibration.toDevice(setpoint, raw), txBuffer, 0);
+            commands.submitValue(txBuffer, n);
+        }
     }
 
-    private void writeNow(byte[] cmd) {
+    /** Starts a batch of setpoint writes sent as one burst; see {@link SetpointTransaction}. */
+    public SetpointTransaction transaction() {
+        return new SetpointTransaction(this, map, calibration);
+    }
+
+    /**
+     * Queues several pre-encoded commands (ending with read-all) as one entry; the writer
+     * sends them in a single port write, so no poll can land between them.
+     */
+    void writeBatch(byte[] cmds, int len) {
+        commands.submit(CommandQueue.Priority.SETPOINT, cmds, len, markPollSent);
+    }
+
+    // -------------------------
+    // Externally clocked polling (SamplingGroup)
+    // -------------------------
+
+    /** Hands the read-all cadence to an external scheduler; the poll loop stops sending. */
+    void setExternalPolling(boolean external) {
+        externalPolling = external;
+    }
+
+    /**
+     * Queues read-all ahead of nothing but setpoints and cutoffs.
+     *
+     * @return {@link System#nanoTime()} when queued, or -1 if the session is not polling
+     *         or a poll is already waiting
+     */
+    long pollNow() {
+        if (!running || !updatesEnabled || cutoffPending) return -1;
+
+        byte[] cmd = map.readAllFrame();
+        if (!commands.submit(CommandQueue.Priority.POLL, cmd, cmd.length, markPollSent)) return -1;
+        return System.nanoTime();
+    }
+
+    /**
+     * When the read-all answered by the frame being dispatched left the port, or -1 if
+     * it matches no outstanding request. Only valid inside {@link FrameStage#onFrame}.
+     */
+    long frameRequestNanos() {
+        return dispatchRequestNanos;
+    }
+
+    /**
+     * Priority path for safety cutoffs: stops new polls, discards queued setpoints and
+     * has output-off written as soon as any in-flight write has finished.
+     * Called on the parser thread.
+     */
+    private boolean emergencyOutputOff(Runnable written) {
+        cutoffPending = true;
+        int n = DeviceCommands.encodeFlag(map, Field.OUTPUT, false, safetyBuffer, 0);
+        Runnable afterWrite = () -> {
+            cutoffPending = false;
+            written.run();
+        };
+        if (commands.submit(CommandQueue.Priority.SAFETY, safetyBuffer, n, afterWrite)) return true;
+        cutoffPending = false;
+        return false;
+    }
+
+    /** Runs on the writer thread once a read-all has left the port. */
+    private void pollSent() {
+        long now = System.nanoTime();
+        pendingReads.sent(now);
+        coordinator.onSend(now);
+    }
+
+    private void enqueue(byte[] cmd) {
+        commands.submit(CommandQueue.Priority.SETPOINT, cmd, cmd.length, null);
+    }
+
+    /** Writer thread only. */
+    private void writeToPort(byte[] cmd, int len, CommandQueue.Priority priority) {
         synchronized (writeLock) {
-            System.out.println("TX: " + HexFormat.of().withUpperCase().withDelimiter(" ").formatHex(cmd));
-            port.writeBytes(cmd, cmd.length);
+            port.writeBytes(cmd, len);
+        }
+        if (TRACE_IO && priority != CommandQueue.Priority.POLL) {
+            String tag = priority == CommandQueue.Priority.SAFETY ? "TX (cutoff): " : "TX: ";
+            System.out.println(tag + HexFormat.of().withUpperCase().withDelimiter(" ").formatHex(cmd, 0, len));
         }
     }
 
@@ -158,24 +613,69 @@ public final class DeviceSession {
     // Poll loop (Read-All)
     // -------------------------
 
+    /**
+     * FULL ticks every 100 ms, KEEP_ALIVE every 2 s, PARKED waits for a demand change
+     * without any timed wakeup. A rise in demand takes effect immediately.
+     */
     private void pollLoop() {
+        var previous = PollDemand.PARKED;
+
         while (running) {
-            if (!updatesEnabled) {
-                sleepMillis(100);
-                continue;
+            long version = demandVersion();
+            var level = effectiveDemand();
+            long now = System.nanoTime();
+
+            if (level == PollDemand.PARKED) {
+                if (previous != PollDemand.PARKED) coordinator.forceStale();
+            } else if (externalPolling) {
+                // A SamplingGroup sends read-all; we only track freshness.
+                coordinator.checkStale(now);
+            } else if (level == PollDemand.KEEP_ALIVE) {
+                sendPoll();
+                coordinator.checkStale(now, 2 * KEEP_ALIVE_NANOS);
+            } else if (previous != PollDemand.FULL || coordinator.shouldSend(now)) {
+                sendPoll();
             }
 
-            long now = System.nanoTime();
+            previous = level;
+            awaitDemandChange(version, switch (level) {
+                case PARKED -> 0;
+                case KEEP_ALIVE -> KEEP_ALIVE_NANOS;
+                case FULL -> POLL_TICK_NANOS;
+            });
+        }
+    }
 
-            if (coordinator.shouldSend(now)) {
-                synchronized (writeLock) {
-                    byte[] cmd = DeviceCommands.readAll();
-                    port.writeBytes(cmd, cmd.length);
+    private void sendPoll() {
+        if (cutoffPending) return;
+        byte[] cmd = map.readAllFrame();
+        commands.submit(CommandQueue.Priority.POLL, cmd, cmd.length, markPollSent);
+    }
+
+    private long demandVersion() {
+        demandLock.lock();
+        try {
+            return demandVersion;
+        } finally {
+            demandLock.unlock();
+        }
+    }
+
+    /** Returns after {@code nanos} (0 = no timeout), or earlier if demand changed since {@code version}. */
+    private void awaitDemandChange(long version, long nanos) {
+        demandLock.lock();
+        try {
+            while (running && demandVersion == version) {
+                if (nanos == 0) {
+                    demandChanged.await();
+                } else if ((nanos = demandChanged.awaitNanos(nanos)) <= 0) {
+                    return;
                 }
-                coordinator.onSend(now);
             }
-
-            sleepMillis(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            demandLock.unlock();
         }
     }
 
@@ -183,80 +683,142 @@ public final class DeviceSession {
     // Reader loop (streaming)
     // -------------------------
 
+    private final byte[] eventChunk = new byte[512];
+
+    /** Runs on jSerialComm's event thread: only moves bytes, never parses. */
+    private void drainPort() {
+        int available;
+        while (running && (available = port.bytesAvailable()) > 0) {
+            int n = port.readBytes(eventChunk, Math.min(available, eventChunk.length));
+            if (n <= 0) return;
+            rxHandoff.offer(eventChunk, n, System.nanoTime());
+        }
+    }
+
+    private void parseLoop() {
+        byte[] chunk = new byte[512];
+
+        try {
+            while (running) {
+                rxHandoff.take(chunk);
+                int from = 0;
+                for (int i = 0; i < rxHandoff.pieces(); i++) {
+                    int end = rxHandoff.pieceEnd(i);
+                    onBytes(chunk, from, end - from, rxHandoff.pieceNanos(i));
+                    from = end;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private void readerLoop() {
         byte[] chunk = new byte[512];
 
         while (running) {
             int n = port.readBytes(chunk, chunk.length);
             if (n <= 0) continue;
-            System.out.println("RX: " + HexFormat.of().withUpperCase().withDelimiter(" ").formatHex(chunk, 0, n));
+            onBytes(chunk, 0, n, System.nanoTime());
+        }
+    }
 
-            frameBuffer.append(chunk, n);
+    /**
+     * @param arrivalNanos when the serial read returned this chunk
+     */
+    private void onBytes(byte[] chunk, int off, int n, long arrivalNanos) {
+        if (TRACE_IO) System.out.println("RX: " + HexFormat.of().withUpperCase().withDelimiter(" ").formatHex(chunk, off, off + n));
 
-            byte[] frame;
-            while ((frame = frameBuffer.tryPopFrame()) != null) {
-                handleFrame(frame);
-            }
+        frameBuffer.append(chunk, off, n, arrivalNanos);
+
+        byte[] frame;
+        while ((frame = frameBuffer.tryPopFrame()) != null) {
+            // A frame completes in the chunk that was just appended
+            handleFrame(frame, frameBuffer.frameFirstByteNanos(), arrivalNanos);
         }
     }
 
-    private void handleFrame(byte[] frame) {
-        if (!Frames.isValidFrame(frame)) {
-            IO.println("Invalid frame received, ignoring.");
-            return;
-        }
-        if (!Frames.isReadAllResponse(frame)) {
+    /** {@code frame} is CRC-checked by the frame buffer already. */
+    private void handleFrame(byte[] frame, long firstByteNanos, long completeNanos) {
+        if (!map.isReadAllResponse(frame)) {
             IO.println("Unknown frame received, ignoring.");
             return;
         }
 
-        coordinator.onReceive(System.nanoTime());
-        dispatchFrame(frame);
+        long validated = System.nanoTime();
+        // The read-all this frame answers, not just the latest one sent
+        long tx = pendingReads.answer(firstByteNanos);
+        if (tx >= 0) latency.record(FrameLatency.Stage.TX_TO_FIRST_BYTE, firstByteNanos - tx);
+        latency.record(FrameLatency.Stage.FIRST_BYTE_TO_COMPLETE, completeNanos - firstByteNanos);
+        latency.record(FrameLatency.Stage.COMPLETE_TO_VALIDATED, validated - completeNanos);
+
+        coordinator.onReceive(completeNanos);
+        dispatchRequestNanos = tx;
+        dispatchFrame(frame, completeNanos);
+
+        latency.record(FrameLatency.Stage.VALIDATED_TO_DISPATCHED, System.nanoTime() - validated);
     }
 
     // -------------------------
     // Diff + dispatch
     // -------------------------
 
-    private void dispatchFrame(byte[] frame) {
-        Field<?>[] fields = Field.values();
-        for (int i = 0; i < fields.length; i++) {
-            dispatchOne(frame, i, fields[i]);
+    private static final Field<?>[] FIELDS = Field.values();
+
+    private void dispatchFrame(byte[] frame, long frameNanos) {
+        var callbacks = this.callbacks;
+        long listened = callbackMask;
+        long changed = decoder.decode(frame, demandMask(listened)) & listened;
+
+        limits.onFrame(decoder, frameNanos);
+
+        while (changed != 0) {
+            int idx = Long.numberOfTrailingZeros(changed);
+            changed &= changed - 1;
+            emit(FIELDS[idx], callbacks[idx]);
         }
-    }
 
-    private <T> void dispatchOne(byte[] frame, int idx, Field<T> f) {
-        T newV = f.read(frame);
+        if (!snapshotListeners.isEmpty()) {
+            var snapshot = decoder.snapshot();
+            for (var l : snapshotListeners) l.accept(snapshot);
+        }
 
-        @SuppressWarnings("unchecked")
-        T oldV = (T) lastValues[idx];
+        for (var stage : stages) stage.onFrame(decoder, frameNanos);
+    }
 
-        if (oldV != null && f.same(oldV, newV)) return;
+    /** Slots anyone reads this frame: field listeners, limits and every stage. */
+    private long demandMask(long listened) {
+        if (!snapshotListeners.isEmpty()) return FrameDecoder.ALL_SLOTS;
 
-        lastValues[idx] = newV;
-        emit(f, newV);
+        long mask = listened | limits.fieldMask();
+        for (var stage : stages) mask |= stage.fieldMask();
+        return mask;
     }
 
     @SuppressWarnings("unchecked")
-    private <T> void emit(Field<T> f, T value) {
-        var cb = (Consumer<T>) callbacks.get(f);
-        if (cb != null) cb.accept(value);
+    private <T> void emit(Field<T> f, Consumer<?>[] listeners) {
+        T value = decoder.value(f);
+        for (var cb : listeners) ((Consumer<T>) cb).accept(value);
     }
 
     // -------------------------
     // Utils
     // -------------------------
 
-    private static void run(Runnable r) {
-        if (r != null) r.run();
+    private void stale() {
+        limits.onStale();
+        for (var stage : stages) stage.onStale();
+        run(onStale);
     }
 
-    private static void sleepMillis(int ms) {
-        try {
-            Thread.sleep(ms);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+    /** One read-all request plus its response on the wire, 10 bits per byte. */
+    private static long transactionNanos(RegisterMap map, int baud) {
+        long bytes = map.readAllFrame().length + map.frameLength();
+        return bytes * 10 * 1_000_000_000L / baud;
+    }
+
+    private static void run(Runnable r) {
+        if (r != null) r.run();
     }
 }
 
@@ -301,6 +863,17 @@ final class UpdateCoordinator {
         return receivedRecently || forceRetry;
     }
 
+    /** Freshness check without deciding about sending, for externally clocked polling. */
+    void checkStale(long nowNanos) {
+        checkStale(nowNanos, FORCE_RETRY_NANOS);
+    }
+
+    /** As {@link #checkStale(long)} with a longer allowance, for keep-alive polling. */
+    void checkStale(long nowNanos, long maxAgeNanos) {
+        if (!updatesEnabled) return;
+        if ((nowNanos - lastReceiveNanos) >= maxAgeNanos) onStale.run();
+    }
+
     void onSend(long nowNanos) {
         lastSendNanos = nowNanos;
     }
@@ -312,58 +885,190 @@ final class UpdateCoordinator {
 }
 
 /* ============================================================
- * Streaming frame buffer (F7 ... FD)
+ * Event thread -> parser thread byte handoff
  * ============================================================ */
 
-final class FrameBuffer {
+/**
+ * Bounded byte ring between the serial event thread and the parser.
+ * On overflow the oldest bytes are dropped; the frame buffer resyncs on the next F7.
+ * <p>
+ * Each offered chunk keeps its own arrival time, so bytes merged into one
+ * {@link #take} are still stamped with when they actually arrived. Beyond
+ * {@value #MAX_CHUNKS} pending chunks the newest ones merge under the latest time.
+ */
+final class RxHandoff {
+
+    static final int MAX_CHUNKS = 64;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    private final byte[] ring;
+    private int head;
+    private int size;
+    private long droppedBytes;
 
-    private byte[] buf = new byte[2048];
-    private int len = 0;
+    // Pending chunks, oldest first; the oldest shrinks as it is taken or dropped
+    private final int[] chunkBytes = new int[MAX_CHUNKS];
+    private final long[] chunkNanos = new long[MAX_CHUNKS];
+    private int chunkHead;
+    private int chunks;
 
-    void append(byte[] src, int n) {
-        ensure(len + n);
-        System.arraycopy(src, 0, buf, len, n);
-        len += n;
+    // Last take: bytes before pieceEnds[i] (and after the previous end) arrived at pieceNanos[i]
+    private final int[] pieceEnds = new int[MAX_CHUNKS];
+    private final long[] pieceNanos = new long[MAX_CHUNKS];
+    private int pieces;
+
+    RxHandoff(int capacity) {
+        this.ring = new byte[capacity];
     }
 
-    byte[] tryPopFrame() {
-        int start = indexOf((byte) 0xF7);
-        if (start < 0) {
-            return null;
+    void offer(byte[] src, int n, long arrivalNanos) {
+        lock.lock();
+        try {
+            int from = 0;
+            if (n > ring.length) {
+                droppedBytes += n - ring.length;
+                from = n - ring.length;
+                n = ring.length;
+            }
+            int overflow = size + n - ring.length;
+            if (overflow > 0) {
+                head = (head + overflow) % ring.length;
+                size -= overflow;
+                droppedBytes += overflow;
+                consumeChunks(overflow, false);
+            }
+
+            int tail = (head + size) % ring.length;
+            int first = Math.min(n, ring.length - tail);
+            System.arraycopy(src, from, ring, tail, first);
+            System.arraycopy(src, from + first, ring, 0, n - first);
+            size += n;
+
+            if (chunks == MAX_CHUNKS) {
+                int last = (chunkHead + chunks - 1) % MAX_CHUNKS;
+                chunkBytes[last] += n;
+                chunkNanos[last] = arrivalNanos;
+            } else {
+                int next = (chunkHead + chunks) % MAX_CHUNKS;
+                chunkBytes[next] = n;
+                chunkNanos[next] = arrivalNanos;
+                chunks++;
+            }
+
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until bytes are available; returns how many were copied into {@code dst}.
+     * {@link #pieces()} then tells which arrival time each part of them carries.
+     */
+    int take(byte[] dst) throws InterruptedException {
+        lock.lock();
+        try {
+            while (size == 0) notEmpty.await();
+
+            int n = Math.min(size, dst.length);
+            int first = Math.min(n, ring.length - head);
+            System.arraycopy(ring, head, dst, 0, first);
+            System.arraycopy(ring, 0, dst, first, n - first);
+            head = (head + n) % ring.length;
+            size -= n;
+            pieces = 0;
+            consumeChunks(n, true);
+            return n;
+        } finally {
+            lock.unlock();
         }
+    }
 
-        if (start > 0) shiftLeft(start);
+    /** Number of differently stamped parts in the last {@link #take}; parser thread only. */
+    int pieces() {
+        return pieces;
+    }
 
-        int end = indexOf((byte) 0xFD);
-        if (end < 0) return null;
+    /** End (exclusive) of part {@code i} of the last take; parser thread only. */
+    int pieceEnd(int i) {
+        return pieceEnds[i];
+    }
 
-        int frameLen = end + 1;
-        byte[] frame = new byte[frameLen];
-        System.arraycopy(buf, 0, frame, 0, frameLen);
-        shiftLeft(frameLen);
-        return frame;
+    /** Arrival time of part {@code i} of the last take; parser thread only. */
+    long pieceNanos(int i) {
+        return pieceNanos[i];
     }
 
-    private int indexOf(byte b) {
-        for (int i = 0; i < len; i++) {
-            if (buf[i] == b) return i;
+    long droppedBytes() {
+        lock.lock();
+        try {
+            return droppedBytes;
+        } finally {
+            lock.unlock();
         }
-        return -1;
     }
 
-    private void shiftLeft(int n) {
-        int remaining = len - n;
-        if (remaining > 0) System.arraycopy(buf, n, buf, 0, remaining);
-        len = remaining;
+    /** Removes {@code n} bytes from the oldest chunks, recording them as pieces if taken. */
+    private void consumeChunks(int n, boolean taken) {
+        int end = 0;
+        while (n > 0 && chunks > 0) {
+            int m = Math.min(n, chunkBytes[chunkHead]);
+            if (taken) {
+                end += m;
+                pieceEnds[pieces] = end;
+                pieceNanos[pieces] = chunkNanos[chunkHead];
+                pieces++;
+            }
+            n -= m;
+            chunkBytes[chunkHead] -= m;
+            if (chunkBytes[chunkHead] == 0) {
+                chunkHead = (chunkHead + 1) % MAX_CHUNKS;
+                chunks--;
+            }
+        }
+    }
+}
+
+/**
+ * Send times of read-alls that have not been answered yet, oldest first.
+ * <p>
+ * The device answers in order, so each response belongs to the oldest request sent
+ * before its first byte. A request whose answer has not started within
+ * {@link #LOST_NANOS} is taken as lost and skipped. Written by the writer thread,
+ * consumed by the parser thread.
+ */
+final class PendingReads {
+
+    private static final long LOST_NANOS = 1_000_000_000L;
+
+    private final long[] sentNanos = new long[16];
+    private int head;
+    private int size;
+
+    synchronized void sent(long nanos) {
+        if (size == sentNanos.length) {
+            head = (head + 1) % sentNanos.length;
+            size--;
+        }
+        sentNanos[(head + size) % sentNanos.length] = nanos;
+        size++;
     }
 
-    private void ensure(int need) {
-        if (need <= buf.length) return;
-        int cap = buf.length;
-        while (cap < need) cap *= 2;
-        byte[] nb = new byte[cap];
-        System.arraycopy(buf, 0, nb, 0, len);
-        buf = nb;
+    /** Send time of the request a response starting at {@code firstByteNanos} answers, or -1. */
+    synchronized long answer(long firstByteNanos) {
+        while (size > 1
+                && firstByteNanos - sentNanos[head] >= LOST_NANOS
+                && sentNanos[(head + 1) % sentNanos.length] <= firstByteNanos) {
+            head = (head + 1) % sentNanos.length;
+            size--;
+        }
+        if (size == 0 || sentNanos[head] > firstByteNanos) return -1;
+        long sent = sentNanos[head];
+        head = (head + 1) % sentNanos.length;
+        size--;
+        return sent;
     }
 }
 
@@ -388,14 +1093,6 @@ final class Frames {
         int calc = Crc16Modbus.compute(frame, frame.length - 3);
         return got == calc;
     }
-
-    static boolean isReadAllResponse(byte[] frame) {
-        return frame.length == 26
-                && (frame[1] & 0xFF) == 0x02
-                && (frame[2] & 0xFF) == 0x03
-                && (frame[3] & 0xFF) == 0x04
-                && (frame[4] & 0xFF) == 0x09;
-    }
 }
 
 /* ============================================================
@@ -404,17 +1101,36 @@ final class Frames {
 
 final class Crc16Modbus {
 
-    private Crc16Modbus() {
-    }
+    static final int INITIAL = 0xFFFF;
 
-    static int compute(byte[] data, int length) {
-        int crc = 0xFFFF;
-        for (int i = 0; i < length; i++) {
-            crc ^= (data[i] & 0xFF);
+    private static final int[] TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
             for (int j = 0; j < 8; j++) {
                 crc = (crc & 1) != 0 ? (crc >> 1) ^ 0xA001 : (crc >> 1);
             }
+            TABLE[i] = crc;
+        }
+    }
+
+    private Crc16Modbus() {
+    }
+
+    static int compute(byte[] data, int length) {
+        return update(INITIAL, data, 0, length);
+    }
+
+    /** Continues a CRC over {@code data[off, off+length)}; lets callers cache the state of a constant prefix. */
+    static int update(int crc, byte[] data, int off, int length) {
+        for (int i = off; i < off + length; i++) {
+            crc = (crc >>> 8) ^ TABLE[(crc ^ data[i]) & 0xFF];
         }
         return crc & 0xFFFF;
     }
+
+    static int update(int crc, int b) {
+        return ((crc >>> 8) ^ TABLE[(crc ^ b) & 0xFF]) & 0xFFFF;
+    }
 }
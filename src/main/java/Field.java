@@ -1,119 +1,35 @@
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.Objects;
-import java.util.function.BiPredicate;
-import java.util.function.Function;
+import java.util.function.IntFunction;
 
+/**
+ * Named values of a 2-channel supply as the UI and other consumers see them.
+ * Where a field lives in the frame is described by the device's {@link RegisterMap}
+ * (a register with the same name); decoding happens in {@link FrameDecoder}.
+ */
 public final class Field<T> {
 
     // =========================
     // Public "enum-like" fields
     // =========================
 
-    public static final Field<BigDecimal> CH1_V_MEAS =
-            new Field<>(
-                    "CH1_V_MEAS",
-                    f -> u16Scaled(f, 11, 12, 2),
-                    BigDecimal::equals
-            );
-
-    public static final Field<BigDecimal> CH1_I_MEAS =
-            new Field<>(
-                    "CH1_I_MEAS",
-                    f -> u16Scaled(f, 13, 14, 3),
-                    BigDecimal::equals
-            );
-
-    public static final Field<BigDecimal> CH1_V_SET =
-            new Field<>(
-                    "CH1_V_SET",
-                    f -> u16Scaled(f, 19, 20, 2),
-                    BigDecimal::equals
-            );
-
-    public static final Field<BigDecimal> CH1_I_SET =
-            new Field<>(
-                    "CH1_I_SET",
-                    f -> u16Scaled(f, 21, 22, 3),
-                    BigDecimal::equals
-            );
-
-    public static final Field<Boolean> CH1_CV =
-            new Field<>(
-                    "CH1_CV",
-                    f -> bit(f[6], 0),
-                    (a, b) -> a == b
-            );
-
-    public static final Field<Boolean> CH1_CC =
-            new Field<>(
-                    "CH1_CC",
-                    f -> bit(f[6], 1),
-                    (a, b) -> a == b
-            );
-
-    public static final Field<BigDecimal> CH2_V_MEAS =
-            new Field<>(
-                    "CH2_V_MEAS",
-                    f -> u16Scaled(f, 7, 8, 2),
-                    BigDecimal::equals
-            );
-
-    public static final Field<BigDecimal> CH2_I_MEAS =
-            new Field<>(
-                    "CH2_I_MEAS",
-                    f -> u16Scaled(f, 9, 10, 3),
-                    BigDecimal::equals
-            );
-
-    public static final Field<BigDecimal> CH2_V_SET =
-            new Field<>(
-                    "CH2_V_SET",
-                    f -> u16Scaled(f, 15, 16, 2),
-                    BigDecimal::equals
-            );
-
-    public static final Field<BigDecimal> CH2_I_SET =
-            new Field<>(
-                    "CH2_I_SET",
-                    f -> u16Scaled(f, 17, 18, 3),
-                    BigDecimal::equals
-            );
-
-    public static final Field<Boolean> CH2_CV =
-            new Field<>(
-                    "CH2_CV",
-                    f -> bit(f[5], 0),
-                    (a, b) -> a == b
-            );
-
-    public static final Field<Boolean> CH2_CC =
-            new Field<>(
-                    "CH2_CC",
-                    f -> bit(f[5], 1),
-                    (a, b) -> a == b
-            );
-
-    public static final Field<Boolean> OUTPUT =
-            new Field<>(
-                    "OUTPUT",
-                    f -> bit(f[5], 5),
-                    (a, b) -> a == b
-            );
-
-    public static final Field<Boolean> SERIAL =
-            new Field<>(
-                    "SERIAL",
-                    f -> bit(f[5], 2),
-                    (a, b) -> a == b
-            );
-
-    public static final Field<Boolean> PARALLEL =
-            new Field<>(
-                    "PARALLEL",
-                    f -> bit(f[5], 3),
-                    (a, b) -> a == b
-            );
+    public static final Field<BigDecimal> CH1_V_MEAS = u16(0, "CH1_V_MEAS", 2);
+    public static final Field<BigDecimal> CH1_I_MEAS = u16(1, "CH1_I_MEAS", 3);
+    public static final Field<BigDecimal> CH1_V_SET  = u16(2, "CH1_V_SET", 2);
+    public static final Field<BigDecimal> CH1_I_SET  = u16(3, "CH1_I_SET", 3);
+    public static final Field<Boolean>    CH1_CV     = flag(4, "CH1_CV");
+    public static final Field<Boolean>    CH1_CC     = flag(5, "CH1_CC");
+
+    public static final Field<BigDecimal> CH2_V_MEAS = u16(6, "CH2_V_MEAS", 2);
+    public static final Field<BigDecimal> CH2_I_MEAS = u16(7, "CH2_I_MEAS", 3);
+    public static final Field<BigDecimal> CH2_V_SET  = u16(8, "CH2_V_SET", 2);
+    public static final Field<BigDecimal> CH2_I_SET  = u16(9, "CH2_I_SET", 3);
+    public static final Field<Boolean>    CH2_CV     = flag(10, "CH2_CV");
+    public static final Field<Boolean>    CH2_CC     = flag(11, "CH2_CC");
+
+    // Device-wide flags (on the PeakTech 2CH they live in the CH2 status byte)
+    public static final Field<Boolean>    OUTPUT     = flag(12, "OUTPUT");
+    public static final Field<Boolean>    SERIAL     = flag(13, "SERIAL");
+    public static final Field<Boolean>    PARALLEL   = flag(14, "PARALLEL");
 
     // =========================
     // "values()" equivalent
@@ -141,50 +57,58 @@ public final class Field<T> {
         return ALL.clone();
     }
 
+    static int count() {
+        return ALL.length;
+    }
+
     // =========================
     // Instance part
     // =========================
 
+    private final int index;
     private final String name;
-    private final Function<byte[], T> reader;
-    private final BiPredicate<T, T> equality;
+    private final int scale;
+    private final IntFunction<T> converter;
 
     private Field(
+            int index,
             String name,
-            Function<byte[], T> reader,
-            BiPredicate<T, T> equality
+            int scale,
+            IntFunction<T> converter
     ) {
+        this.index = index;
         this.name = name;
-        this.reader = reader;
-        this.equality = equality;
+        this.scale = scale;
+        this.converter = converter;
     }
 
     public String name() {
         return name;
     }
 
-    T read(byte[] frame) {
-        return reader.apply(frame);
+    int index() {
+        return index;
+    }
+
+    /** Decimal places of the raw value; 0 for flags. */
+    int scale() {
+        return scale;
     }
 
-    boolean same(T a, T b) {
-        return equality.test(a, b);
+    T fromRaw(int raw) {
+        return converter.apply(raw);
     }
 
     // =========================
     // Helpers (local, no dead code)
     // =========================
 
-    private static boolean bit(byte b, int idx) {
-        return ((b >> idx) & 1) == 1;
+    private static Field<BigDecimal> u16(int index, String name, int scale) {
+        return new Field<>(index, name, scale, raw -> BigDecimal.valueOf(raw, scale));
     }
 
-    private static BigDecimal u16Scaled(byte[] f, int hi, int lo, int scale) {
-        int raw = ((f[hi] & 0xFF) << 8) | (f[lo] & 0xFF);
-        return BigDecimal
-                .valueOf(raw)
-                .movePointLeft(scale)
-                .setScale(scale, RoundingMode.UNNECESSARY);
+    private static Field<Boolean> flag(int index, String name) {
+        return new Field<>(index, name, 0, raw -> raw != 0);
     }
 
     @Override
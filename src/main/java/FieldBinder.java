@@ -34,8 +34,14 @@ public final class FieldBinder {
             Field<T> field,
             Consumer<T> target
     ) {
-        session.on(field, value ->
-                SwingUtilities.invokeLater(() -> target.accept(value))
-        );
+        var edt = session.latency().histogram(FrameLatency.Stage.DISPATCHED_TO_EDT);
+
+        session.on(field, value -> {
+            long dispatched = System.nanoTime();
+            SwingUtilities.invokeLater(() -> {
+                target.accept(value);
+                edt.record(System.nanoTime() - dispatched);
+            });
+        });
     }
 }
@@ -0,0 +1,256 @@
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Live mean / standard deviation / min / max of numeric fields over time windows.
+ * <p>
+ * Fed with every decoded frame (not only with changes), on raw fixed-point ints.
+ * Time windows are rings of buckets with integer count/sum/sum-of-squares/min/max:
+ * an update touches one bucket and the running totals, a query combines the buckets.
+ * "Since reset" windows use Welford's algorithm. Memory per window is fixed.
+ */
+public final class FieldStatistics implements FrameStage {
+
+    public record Summary(
+            long count,
+            double mean,
+            double stddev,
+            double min,
+            double max
+    ) {
+        public double peakToPeak() {
+            return count == 0 ? 0 : max - min;
+        }
+    }
+
+    public interface Window {
+
+        Field<BigDecimal> field();
+
+        Summary summary();
+
+        void reset();
+    }
+
+    private static final int BUCKETS = 60;
+
+    private volatile Accumulator[] windows = new Accumulator[0];
+    private volatile long fieldMask;
+
+    FieldStatistics() {
+    }
+
+    // -------------------------
+    // Public API
+    // -------------------------
+
+    /** Statistics over the last {@code length} of frames, at 1/60 of {@code length} resolution. */
+    public Window track(Field<BigDecimal> field, Duration length) {
+        if (length.isZero() || length.isNegative()) throw new IllegalArgumentException("length must be positive");
+        return add(new Bucketed(field, length.toNanos()));
+    }
+
+    /** Statistics over every frame since creation or the last {@link Window#reset()}. */
+    public Window trackSinceReset(Field<BigDecimal> field) {
+        return add(new Welford(field));
+    }
+
+    public synchronized void remove(Window window) {
+        int n = 0;
+        var next = new Accumulator[windows.length];
+        for (var w : windows) if (w != window) next[n++] = w;
+        setWindows(Arrays.copyOf(next, n));
+    }
+
+    public void resetAll() {
+        for (var w : windows) w.reset();
+    }
+
+    private synchronized Window add(Accumulator acc) {
+        var next = Arrays.copyOf(windows, windows.length + 1);
+        next[windows.length] = acc;
+        setWindows(next);
+        return acc;
+    }
+
+    private void setWindows(Accumulator[] next) {
+        long mask = 0;
+        for (var w : next) mask |= FrameDecoder.maskOf(w.field);
+        windows = next;
+        fieldMask = mask;
+    }
+
+    // -------------------------
+    // FrameStage
+    // -------------------------
+
+    @Override
+    public void onFrame(FrameDecoder frame, long frameNanos) {
+        for (var w : windows) w.add(frame.raw(w.field), frameNanos);
+    }
+
+    @Override
+    public long fieldMask() {
+        return fieldMask;
+    }
+
+    // -------------------------
+    // Accumulators
+    // -------------------------
+
+    private abstract static class Accumulator implements Window {
+
+        final Field<BigDecimal> field;
+        final double unit;
+
+        Accumulator(Field<BigDecimal> field) {
+            this.field = field;
+            this.unit = Math.pow(10, -field.scale());
+        }
+
+        @Override
+        public Field<BigDecimal> field() {
+            return field;
+        }
+
+        abstract void add(int raw, long nanos);
+    }
+
+    /** Exact integer sums per bucket; expired buckets are subtracted from the running totals. */
+    private static final class Bucketed extends Accumulator {
+
+        private final long bucketNanos;
+
+        private final long[] count = new long[BUCKETS];
+        private final long[] sum = new long[BUCKETS];
+        private final long[] sumSq = new long[BUCKETS];
+        private final int[] min = new int[BUCKETS];
+        private final int[] max = new int[BUCKETS];
+
+        private long totalCount;
+        private long totalSum;
+        private long totalSumSq;
+        private long currentBucket = Long.MIN_VALUE;
+
+        Bucketed(Field<BigDecimal> field, long lengthNanos) {
+            super(field);
+            this.bucketNanos = Math.max(1, lengthNanos / BUCKETS);
+            clear();
+        }
+
+        @Override
+        synchronized void add(int raw, long nanos) {
+            advance(Math.floorDiv(nanos, bucketNanos));
+
+            int b = Math.floorMod(currentBucket, BUCKETS);
+            long sq = (long) raw * raw;
+            count[b]++;
+            sum[b] += raw;
+            sumSq[b] += sq;
+            if (raw < min[b]) min[b] = raw;
+            if (raw > max[b]) max[b] = raw;
+
+            totalCount++;
+            totalSum += raw;
+            totalSumSq += sq;
+        }
+
+        @Override
+        public synchronized Summary summary() {
+            advance(Math.floorDiv(System.nanoTime(), bucketNanos));
+            if (totalCount == 0) return new Summary(0, 0, 0, 0, 0);
+
+            int lo = Integer.MAX_VALUE;
+            int hi = Integer.MIN_VALUE;
+            for (int b = 0; b < BUCKETS; b++) {
+                if (count[b] == 0) continue;
+                lo = Math.min(lo, min[b]);
+                hi = Math.max(hi, max[b]);
+            }
+
+            double mean = (double) totalSum / totalCount;
+            double variance = totalCount < 2 ? 0
+                    : Math.max(0, (totalSumSq - totalSum * mean) / (totalCount - 1));
+
+            return new Summary(totalCount, mean * unit, Math.sqrt(variance) * unit, lo * unit, hi * unit);
+        }
+
+        @Override
+        public synchronized void reset() {
+            clear();
+            currentBucket = Long.MIN_VALUE;
+        }
+
+        /** Expires every bucket between the current one and {@code bucket}; at most BUCKETS steps. */
+        private void advance(long bucket) {
+            if (bucket <= currentBucket) return;
+
+            if (currentBucket == Long.MIN_VALUE || bucket - currentBucket >= BUCKETS) {
+                clear();
+            } else {
+                for (long k = currentBucket + 1; k <= bucket; k++) {
+                    expire(Math.floorMod(k, BUCKETS));
+                }
+            }
+            currentBucket = bucket;
+        }
+
+        private void expire(int b) {
+            totalCount -= count[b];
+            totalSum -= sum[b];
+            totalSumSq -= sumSq[b];
+            count[b] = 0;
+            sum[b] = 0;
+            sumSq[b] = 0;
+            min[b] = Integer.MAX_VALUE;
+            max[b] = Integer.MIN_VALUE;
+        }
+
+        private void clear() {
+            for (int b = 0; b < BUCKETS; b++) expire(b);
+            totalCount = 0;
+            totalSum = 0;
+            totalSumSq = 0;
+        }
+    }
+
+    private static final class Welford extends Accumulator {
+
+        private long n;
+        private double mean;
+        private double m2;
+        private int min = Integer.MAX_VALUE;
+        private int max = Integer.MIN_VALUE;
+
+        Welford(Field<BigDecimal> field) {
+            super(field);
+        }
+
+        @Override
+        synchronized void add(int raw, long nanos) {
+            n++;
+            double delta = raw - mean;
+            mean += delta / n;
+            m2 += delta * (raw - mean);
+            if (raw < min) min = raw;
+            if (raw > max) max = raw;
+        }
+
+        @Override
+        public synchronized Summary summary() {
+            if (n == 0) return new Summary(0, 0, 0, 0, 0);
+            double stddev = n < 2 ? 0 : Math.sqrt(m2 / (n - 1));
+            return new Summary(n, mean * unit, stddev * unit, min * unit, max * unit);
+        }
+
+        @Override
+        public synchronized void reset() {
+            n = 0;
+            mean = 0;
+            m2 = 0;
+            min = Integer.MAX_VALUE;
+            max = Integer.MIN_VALUE;
+        }
+    }
+}
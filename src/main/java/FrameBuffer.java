@@ -0,0 +1,265 @@
+import java.util.Arrays;
+
+/**
+ * Streaming frame buffer (F7 ... CRC_LO CRC_HI FD) with noise-resilient resync.
+ * <p>
+ * Frames whose header matches the read-all response are taken at the length the
+ * {@link RegisterMap} prescribes, so an FD inside the data cannot cut them short.
+ * Other frames must carry the device address and end at the first FD whose
+ * preceding CRC matches, searched with a running CRC up to {@value #MAX_FRAME} bytes. Whenever a candidate start fails, the
+ * search resumes at the next byte after that F7, not after the bogus frame, so a
+ * real frame hidden inside garbage is still found. Each byte is examined a bounded
+ * number of times, and the buffer only compacts when it has to grow.
+ * <p>
+ * Only CRC-valid frames are returned. Not thread-safe; owned by the parser thread.
+ */
+final class FrameBuffer {
+
+    static final int MIN_FRAME = 6;
+    static final int MAX_FRAME = 64;
+
+    private static final byte START = (byte) 0xF7;
+    private static final byte END = (byte) 0xFD;
+
+    private final byte[] readAllHeader;
+    private final int readAllLength;
+
+    private byte[] buf = new byte[2048];
+    private int head;
+    private int len;
+
+    // Unknown-length search state for the frame starting at head
+    private int scanPos = -1;
+    private int crcPos;
+    private int crc;
+
+    // Arrival time of each appended chunk, keyed by the chunk's start position in buf
+    private int[] markPos = new int[16];
+    private long[] markNanos = new long[16];
+    private int marks;
+    private long frameFirstByteNanos;
+
+    private long frames;
+    private long discardedBytes;
+    private long rejectedStarts;
+    private long crcErrors;
+    private long poppedBytes;
+    private long frameOffset;
+
+    FrameBuffer(RegisterMap map) {
+        byte[] readAll = map.readAllFrame();
+        // F7 plus the payload bytes the response echoes
+        this.readAllHeader = Arrays.copyOf(readAll, readAll.length - 3);
+        this.readAllLength = map.frameLength();
+    }
+
+    void append(byte[] src, int n, long arrivalNanos) {
+        append(src, 0, n, arrivalNanos);
+    }
+
+    void append(byte[] src, int off, int n, long arrivalNanos) {
+        ensure(n);
+        System.arraycopy(src, off, buf, len, n);
+        addMark(len, arrivalNanos);
+        len += n;
+    }
+
+    byte[] tryPopFrame() {
+        while (true) {
+            if (!seekStart()) return null;
+
+            int avail = len - head;
+            int header = matchReadAllHeader(avail);
+
+            if (header > 0) {
+                if (avail < readAllLength) return null;
+                if (buf[head + readAllLength - 1] == END && crcMatches(readAllLength)) {
+                    return pop(readAllLength);
+                }
+                crcErrors++;
+                reject();
+                continue;
+            }
+            if (header == 0) return null; // header prefix still possible, need more bytes
+            if (buf[head + 1] != readAllHeader[1]) {
+                // Every response carries the device address; anything else is noise
+                reject();
+                continue;
+            }
+
+            int end = scanUnknown();
+            if (end > 0) return pop(end - head + 1);
+            if (end == 0) return null;
+            reject();
+        }
+    }
+
+    /** Arrival time of the chunk that carried the first byte of the last popped frame. */
+    long frameFirstByteNanos() {
+        return frameFirstByteNanos;
+    }
+
+    /** Position in the appended stream of the first byte of the last popped frame. */
+    long frameOffset() {
+        return frameOffset;
+    }
+
+    long frames() {
+        return frames;
+    }
+
+    long discardedBytes() {
+        return discardedBytes;
+    }
+
+    long rejectedStarts() {
+        return rejectedStarts;
+    }
+
+    /** Full-length read-all frames whose end marker or CRC was wrong. */
+    long crcErrors() {
+        return crcErrors;
+    }
+
+    // -------------------------
+    // Frame search
+    // -------------------------
+
+    /** Moves head to the next F7; false (and everything discarded) if there is none. */
+    private boolean seekStart() {
+        int i = head;
+        while (i < len && buf[i] != START) i++;
+
+        if (i > head) {
+            discardedBytes += i - head;
+            head = i;
+            scanPos = -1;
+        }
+        return head < len;
+    }
+
+    /** 1 = full read-all header, 0 = could still become one, -1 = something else. */
+    private int matchReadAllHeader(int avail) {
+        int n = Math.min(avail, readAllHeader.length);
+        for (int i = 1; i < n; i++) {
+            if (buf[head + i] != readAllHeader[i]) return -1;
+        }
+        return n == readAllHeader.length ? 1 : 0;
+    }
+
+    /**
+     * Looks for an FD preceded by a matching CRC, keeping a running CRC so that
+     * bytes are not re-hashed while waiting for more input.
+     *
+     * @return index of the FD; 0 if more input is needed; -1 if this start is not a frame
+     */
+    private int scanUnknown() {
+        if (scanPos < 0) {
+            scanPos = head + MIN_FRAME - 1;
+            crcPos = head;
+            crc = Crc16Modbus.INITIAL;
+        }
+
+        int limit = Math.min(len, head + MAX_FRAME);
+        for (; scanPos < limit; scanPos++) {
+            if (buf[scanPos] != END) continue;
+
+            int crcEnd = scanPos - 2;
+            crc = Crc16Modbus.update(crc, buf, crcPos, crcEnd - crcPos);
+            crcPos = crcEnd;
+            if (crc == storedCrc(scanPos)) return scanPos;
+        }
+
+        return scanPos >= head + MAX_FRAME ? -1 : 0;
+    }
+
+    private boolean crcMatches(int frameLen) {
+        int end = head + frameLen - 1;
+        return Crc16Modbus.update(Crc16Modbus.INITIAL, buf, head, frameLen - 3) == storedCrc(end);
+    }
+
+    private int storedCrc(int endIdx) {
+        return ((buf[endIdx - 1] & 0xFF) << 8) | (buf[endIdx - 2] & 0xFF);
+    }
+
+    private void reject() {
+        rejectedStarts++;
+        discardedBytes++;
+        head++;
+        scanPos = -1;
+    }
+
+    private byte[] pop(int frameLen) {
+        byte[] frame = Arrays.copyOfRange(buf, head, head + frameLen);
+        frameFirstByteNanos = nanosAt(head);
+        frameOffset = discardedBytes + poppedBytes;
+        poppedBytes += frameLen;
+        head += frameLen;
+        scanPos = -1;
+        frames++;
+        if (head == len) {
+            head = 0;
+            len = 0;
+            marks = 0;
+        }
+        return frame;
+    }
+
+    // -------------------------
+    // Arrival marks
+    // -------------------------
+
+    private void addMark(int pos, long nanos) {
+        if (marks == markPos.length) {
+            markPos = Arrays.copyOf(markPos, marks * 2);
+            markNanos = Arrays.copyOf(markNanos, marks * 2);
+        }
+        markPos[marks] = pos;
+        markNanos[marks] = nanos;
+        marks++;
+    }
+
+    private long nanosAt(int pos) {
+        for (int i = marks - 1; i >= 0; i--) {
+            if (markPos[i] <= pos) return markNanos[i];
+        }
+        return marks > 0 ? markNanos[0] : 0;
+    }
+
+    // -------------------------
+    // Storage
+    // -------------------------
+
+    /** Makes room for {@code n} more bytes: compacts consumed space first, grows only if that is not enough. */
+    private void ensure(int n) {
+        if (len + n <= buf.length) return;
+
+        int live = len - head;
+        byte[] target = buf;
+        if (live + n > buf.length) {
+            int cap = buf.length;
+            while (cap < live + n) cap *= 2;
+            target = new byte[cap];
+        }
+        System.arraycopy(buf, head, target, 0, live);
+        buf = target;
+
+        // Keep the mark covering the new position 0 and every later one
+        int first = 0;
+        while (first + 1 < marks && markPos[first + 1] <= head) first++;
+        int kept = 0;
+        for (int i = first; i < marks; i++) {
+            markPos[kept] = Math.max(0, markPos[i] - head);
+            markNanos[kept] = markNanos[i];
+            kept++;
+        }
+        marks = live == 0 ? 0 : kept;
+
+        if (scanPos >= 0) {
+            scanPos -= head;
+            crcPos -= head;
+        }
+        len = live;
+        head = 0;
+    }
+}
@@ -0,0 +1,214 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Single-pass decoder for read-all frames of one {@link RegisterMap}.
+ * <p>
+ * Walks the frame once into a primitive raw array and reports which slots
+ * changed as a bitmask. Slots {@code 0..Field.count()-1} are the {@link Field}s
+ * (by register name); registers the model has beyond those follow after.
+ * Values ({@code BigDecimal}/{@code Boolean}) and {@link DeviceSnapshot}s are
+ * only materialized on demand, from the same raw array, so field events and
+ * snapshots can never disagree.
+ * <p>
+ * A decode can be restricted to a demand mask of slots: only those registers are
+ * read and diffed, through a packed register list built once per distinct mask. Slots
+ * outside the last demand keep stale values, and report as changed when they are
+ * demanded again.
+ * <p>
+ * Not thread-safe; owned by the thread that feeds it frames.
+ */
+final class FrameDecoder {
+
+    /** Demand mask that decodes every register of the model. */
+    static final long ALL_SLOTS = -1L;
+
+    /** Slots of all {@link Field}s. */
+    static final long FIELD_SLOTS = (1L << Field.count()) - 1;
+
+    private static final Field<?>[] FIELDS = Field.values();
+
+    private final RegisterMap map;
+    private final int[] slots;
+    private final long presentMask;
+    private final Map<Long, RegisterDecoder> decoders = new HashMap<>();
+
+    private final int[] raw;
+    private final int[] next;
+
+    private RegisterDecoder registers;
+    private long registersMask;
+    private long currentMask;
+    private volatile Calibration calibration = Calibration.identity();
+
+    FrameDecoder(RegisterMap map) {
+        this.map = map;
+
+        var regs = map.registers();
+        int[] slots = new int[regs.size()];
+        int extra = FIELDS.length;
+        long present = 0;
+
+        for (int i = 0; i < regs.size(); i++) {
+            var r = regs.get(i);
+            int fieldIdx = fieldIndex(r.name());
+            if (fieldIdx < 0) {
+                slots[i] = extra++;
+            } else {
+                if (FIELDS[fieldIdx].scale() != r.scale()) {
+                    throw new IllegalArgumentException(
+                            map.model() + ": " + r.name() + " must have scale " + FIELDS[fieldIdx].scale());
+                }
+                slots[i] = fieldIdx;
+            }
+            present |= 1L << slots[i];
+        }
+
+        if (extra > Long.SIZE) {
+            throw new IllegalArgumentException(map.model() + ": too many registers for one decoder");
+        }
+
+        this.slots = slots;
+        this.presentMask = present;
+        this.registers = decoderFor(present);
+        this.registersMask = present;
+        this.raw = new int[extra];
+        this.next = new int[extra];
+    }
+
+    RegisterMap map() {
+        return map;
+    }
+
+    /**
+     * Decodes all registers of a validated read-all frame.
+     *
+     * @return bitmask of slots whose raw value changed (all present slots on the first frame)
+     */
+    long decode(byte[] frame) {
+        return decode(frame, ALL_SLOTS);
+    }
+
+    /**
+     * Decodes only the registers whose slots are set in {@code demand}.
+     *
+     * @return bitmask of demanded slots whose raw value changed, or that were not
+     *         demanded by the previous decode
+     */
+    long decode(byte[] frame, long demand) {
+        long wanted = demand & presentMask;
+        if (wanted != registersMask) {
+            registers = decoderFor(wanted);
+            registersMask = wanted;
+        }
+        registers.decode(frame, next);
+        calibration.apply(next, wanted);
+
+        long changed = wanted & ~currentMask;
+        for (long m = wanted; m != 0; m &= m - 1) {
+            int i = Long.numberOfTrailingZeros(m);
+            if (next[i] != raw[i]) {
+                raw[i] = next[i];
+                changed |= 1L << i;
+            }
+        }
+        currentMask = wanted;
+        return changed;
+    }
+
+    /** Takes effect with the next frame; values are reported as changed where it differs. */
+    void setCalibration(Calibration calibration) {
+        this.calibration = calibration;
+    }
+
+    /** Copies the raw values of all {@link Field} slots into {@code dst}. */
+    void copyFields(int[] dst) {
+        System.arraycopy(raw, 0, dst, 0, FIELDS.length);
+    }
+
+    /** Slots decoded by the last frame; everything else may be stale. */
+    long currentMask() {
+        return currentMask;
+    }
+
+    /** Slots of the registers this model has. */
+    long presentMask() {
+        return presentMask;
+    }
+
+    static long maskOf(Field<?>... fields) {
+        long mask = 0;
+        for (var f : fields) mask |= 1L << f.index();
+        return mask;
+    }
+
+    int raw(Field<?> field) {
+        return raw[field.index()];
+    }
+
+    <T> T value(Field<T> field) {
+        return field.fromRaw(raw[field.index()]);
+    }
+
+    /** Raw value of any register of the model, including ones without a {@link Field}. */
+    int raw(String register) {
+        int idx = map.indexOf(register);
+        if (idx < 0) throw new IllegalArgumentException(map.model() + " has no register " + register);
+        return raw[slots[idx]];
+    }
+
+    DeviceSnapshot snapshot() {
+        boolean output = raw[Field.OUTPUT.index()] != 0;
+        boolean serial = raw[Field.SERIAL.index()] != 0;
+        boolean parallel = raw[Field.PARALLEL.index()] != 0;
+
+        var ch1 = new DeviceSnapshot.Channel(
+                value(Field.CH1_V_MEAS),
+                value(Field.CH1_I_MEAS),
+                value(Field.CH1_V_SET),
+                value(Field.CH1_I_SET),
+                raw[Field.CH1_CV.index()] != 0,
+                raw[Field.CH1_CC.index()] != 0,
+                output,
+                serial,
+                parallel
+        );
+
+        var ch2 = new DeviceSnapshot.Channel(
+                value(Field.CH2_V_MEAS),
+                value(Field.CH2_I_MEAS),
+                value(Field.CH2_V_SET),
+                value(Field.CH2_I_SET),
+                raw[Field.CH2_CV.index()] != 0,
+                raw[Field.CH2_CC.index()] != 0,
+                output,
+                serial,
+                parallel
+        );
+
+        return new DeviceSnapshot(ch1, ch2);
+    }
+
+    private RegisterDecoder decoderFor(long mask) {
+        return decoders.computeIfAbsent(mask, m -> {
+            var regs = map.registers();
+            var picked = new ArrayList<RegisterMap.Register>();
+            int[] pickedSlots = new int[regs.size()];
+            for (int i = 0; i < regs.size(); i++) {
+                if ((m & (1L << slots[i])) == 0) continue;
+                pickedSlots[picked.size()] = slots[i];
+                picked.add(regs.get(i));
+            }
+            return new RegisterDecoder(picked, Arrays.copyOf(pickedSlots, picked.size()));
+        });
+    }
+
+    private static int fieldIndex(String name) {
+        for (var f : FIELDS) {
+            if (f.name().equals(name)) return f.index();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,49 @@
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Where the time goes between asking a device for data and showing it,
+ * one histogram per stage:
+ * <pre>
+ * TX sent -> first RX byte -> frame complete -> CRC validated -> dispatched -> applied on EDT
+ * </pre>
+ * RX times are taken when the serial read returns a chunk and travel with the bytes,
+ * so queueing behind the parser shows up in the later stages, not in wire time.
+ */
+public final class FrameLatency {
+
+    public enum Stage {
+        TX_TO_FIRST_BYTE,
+        FIRST_BYTE_TO_COMPLETE,
+        COMPLETE_TO_VALIDATED,
+        VALIDATED_TO_DISPATCHED,
+        DISPATCHED_TO_EDT
+    }
+
+    private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+
+    FrameLatency() {
+        for (var s : Stage.values()) histograms.put(s, new LatencyHistogram());
+    }
+
+    public LatencyHistogram histogram(Stage stage) {
+        return histograms.get(stage);
+    }
+
+    public void reset() {
+        for (var h : histograms.values()) h.reset();
+    }
+
+    void record(Stage stage, long nanos) {
+        histograms.get(stage).record(nanos);
+    }
+
+    @Override
+    public String toString() {
+        var sb = new StringBuilder();
+        for (var s : Stage.values()) {
+            sb.append(s).append(": ").append(histograms.get(s)).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * Processing step that sees every decoded read-all frame, after field dispatch.
+ * <p>
+ * {@link #onFrame} runs on the session's parser thread and must not block.
+ * {@link #onStale} is called from the poll thread when the session loses freshness;
+ * implementations typically just set a volatile flag and react in the next {@code onFrame}.
+ */
+interface FrameStage {
+
+    void onFrame(FrameDecoder frame, long frameNanos);
+
+    /**
+     * Decoder slots this stage reads; only those are guaranteed current in {@link #onFrame}.
+     * Asked once per frame, so it may change at any time. Defaults to everything.
+     */
+    default long fieldMask() {
+        return FrameDecoder.ALL_SLOTS;
+    }
+
+    default void onStale() {
+    }
+}
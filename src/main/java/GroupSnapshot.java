@@ -0,0 +1,27 @@
+import java.util.List;
+
+/**
+ * Readings of all sessions of a {@link SamplingGroup} for one tick.
+ *
+ * @param snapshots   per member, in group order; {@code null} where no response arrived by the deadline
+ * @param frameNanos  per member, {@link System#nanoTime()} the response completed; -1 if missing
+ */
+public record GroupSnapshot(
+        long tickId,
+        long tickNanos,
+        List<DeviceSnapshot> snapshots,
+        long[] frameNanos,
+        boolean complete
+) {
+    /** Spread between earliest and latest response of this tick; 0 if fewer than two arrived. */
+    public long skewNanos() {
+        long lo = Long.MAX_VALUE;
+        long hi = Long.MIN_VALUE;
+        for (long t : frameNanos) {
+            if (t < 0) continue;
+            lo = Math.min(lo, t);
+            hi = Math.max(hi, t);
+        }
+        return hi > lo ? hi - lo : 0;
+    }
+}
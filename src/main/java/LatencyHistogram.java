@@ -0,0 +1,91 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log2 buckets plus 4 linear sub-buckets each
+ * (at most ~19% relative error), recordable from any thread without allocation.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 2;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB + SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) {
+        if (nanos < 0) return;
+        counts.incrementAndGet(bucketOf(nanos));
+        total.increment();
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public long maxNanos() {
+        return max.get();
+    }
+
+    public double meanNanos() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /** Upper bound of the bucket containing the {@code p}-quantile, {@code p} in [0, 1]. */
+    public long percentileNanos(double p) {
+        long n = total.sum();
+        if (n == 0) return 0;
+
+        long rank = (long) Math.ceil(p * n);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts.get(b);
+            if (seen >= Math.max(1, rank)) return Math.min(upperBound(b), maxNanos());
+        }
+        return maxNanos();
+    }
+
+    public void reset() {
+        for (int b = 0; b < BUCKETS; b++) counts.set(b, 0);
+        total.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+                count(),
+                meanNanos() / 1e3,
+                percentileNanos(0.50) / 1e3,
+                percentileNanos(0.99) / 1e3,
+                maxNanos() / 1e3);
+    }
+
+    // -------------------------
+    // Bucketing
+    // -------------------------
+
+    private static int bucketOf(long v) {
+        if (v < SUB) return (int) v;
+        int log = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (log - SUB_BITS)) & (SUB - 1);
+        return (log - SUB_BITS + 1) * SUB + sub;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB) return bucket;
+        int log = bucket / SUB + SUB_BITS - 1;
+        int sub = bucket % SUB;
+        long base = 1L << log;
+        long step = base >>> SUB_BITS;
+        return base + (sub + 1) * step - 1;
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * Consistent copy of every {@link Field}'s raw value from one frame.
+ *
+ * @param sequence   frames published before and including this one; 0 if none yet
+ * @param frameNanos {@link System#nanoTime()} when the frame completed
+ * @param raw        raw values by {@link Field#index()}
+ */
+public record LatestSnapshot(long sequence, long frameNanos, int[] raw) {
+
+    public boolean isEmpty() {
+        return sequence == 0;
+    }
+
+    public int raw(Field<?> field) {
+        return raw[field.index()];
+    }
+
+    public <T> T value(Field<T> field) {
+        return field.fromRaw(raw[field.index()]);
+    }
+}
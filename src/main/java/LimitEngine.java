@@ -0,0 +1,220 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Evaluates {@link LimitRule}s against every decoded frame on the parser thread and
+ * cuts the output through the session's priority path when a rule trips.
+ * <p>
+ * Rules latch once tripped until {@link #rearm()}. A frame that trips any cutoff rule
+ * queues one output-off. Its latency (frame complete to output-off written) is taken on
+ * the writer thread once the command has left the port, recorded once for that frame,
+ * and compared against one serial transaction time: a read-all request plus its
+ * response at the port's baud rate. Trips of cutoff rules are reported from there too,
+ * so {@link #onTrip} runs on the writer thread for them and on the parser thread for
+ * alarm-only rules.
+ */
+public final class LimitEngine implements FrameStage {
+
+    public record Stats(
+            long trips,
+            long lastCutoffNanos,
+            long maxCutoffNanos,
+            long budgetNanos,
+            long overBudget
+    ) {}
+
+    /** Queues output-off; {@code written} runs on the writer thread once it has left the port. */
+    @FunctionalInterface
+    interface Cutoff {
+        /** @return false if the command could not be queued */
+        boolean cutOutput(Runnable written);
+    }
+
+    private final Cutoff cutoff;
+    private final long budgetNanos;
+    private final Runnable onRulesChanged;
+
+    private volatile Compiled[] rules = new Compiled[0];
+    private volatile long fieldMask;
+    private volatile Consumer<LimitTrip> onTrip;
+    private volatile boolean rearmRequested;
+
+    private volatile long trips;
+    private volatile long lastCutoffNanos = -1;
+    private volatile long maxCutoffNanos = -1;
+    private volatile long overBudget;
+
+    LimitEngine(Cutoff cutoff, long budgetNanos, Runnable onRulesChanged) {
+        this.cutoff = cutoff;
+        this.budgetNanos = budgetNanos;
+        this.onRulesChanged = onRulesChanged;
+    }
+
+    // -------------------------
+    // Public API
+    // -------------------------
+
+    public synchronized void add(LimitRule rule) {
+        var next = Arrays.copyOf(rules, rules.length + 1);
+        next[rules.length] = new Compiled(rule);
+        rules = next;
+        fieldMask |= FrameDecoder.maskOf(rule.field);
+        onRulesChanged.run();
+    }
+
+    public synchronized void clear() {
+        rules = new Compiled[0];
+        fieldMask = 0;
+        onRulesChanged.run();
+    }
+
+    /** Armed rules keep the session polling at full rate even with no view open. */
+    public boolean hasRules() {
+        return rules.length > 0;
+    }
+
+    public void onTrip(Consumer<LimitTrip> cb) {
+        this.onTrip = cb;
+    }
+
+    /** Clears all latched trips; applied with the next frame. */
+    public void rearm() {
+        rearmRequested = true;
+    }
+
+    public Stats stats() {
+        return new Stats(trips, lastCutoffNanos, maxCutoffNanos, budgetNanos, overBudget);
+    }
+
+    // -------------------------
+    // FrameStage
+    // -------------------------
+
+    @Override
+    public void onFrame(FrameDecoder frame, long frameNanos) {
+        var rules = this.rules;
+
+        if (rearmRequested) {
+            rearmRequested = false;
+            for (var r : rules) r.reset();
+        }
+
+        List<LimitTrip> cut = null;
+        for (var r : rules) {
+            if (!r.evaluate(frame.raw(r.field), frameNanos)) continue;
+
+            trips++;
+            var trip = new LimitTrip(r.rule, r.lastRaw, frameNanos, -1);
+            if (!r.cutoff) {
+                report(trip);
+                continue;
+            }
+            if (cut == null) cut = new ArrayList<>();
+            cut.add(trip);
+        }
+
+        if (cut != null) {
+            var tripped = cut;
+            if (!cutoff.cutOutput(() -> cutWritten(tripped, frameNanos))) tripped.forEach(this::report);
+        }
+    }
+
+    @Override
+    public long fieldMask() {
+        return fieldMask;
+    }
+
+    @Override
+    public void onStale() {
+        // Rate rules must not compare across a gap
+        for (var r : rules) r.hasPrevious = false;
+    }
+
+    /** Writer thread, once the output-off for a frame has left the port. */
+    private void cutWritten(List<LimitTrip> tripped, long frameNanos) {
+        long latency = System.nanoTime() - frameNanos;
+        record(latency);
+        for (var t : tripped) report(new LimitTrip(t.rule(), t.rawValue(), frameNanos, latency));
+    }
+
+    private void report(LimitTrip trip) {
+        var cb = onTrip;
+        if (cb != null) cb.accept(trip);
+    }
+
+    private void record(long latency) {
+        lastCutoffNanos = latency;
+        if (latency > maxCutoffNanos) maxCutoffNanos = latency;
+        if (latency > budgetNanos) overBudget++;
+    }
+
+    // -------------------------
+    // Compiled rule (parser thread state)
+    // -------------------------
+
+    private static final class Compiled {
+
+        private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+        final LimitRule rule;
+        final LimitRule.Kind kind;
+        final Field<?> field;
+        final int limit;
+        final int sustain;
+        final boolean cutoff;
+
+        int run;
+        boolean tripped;
+        volatile boolean hasPrevious;
+        int previousRaw;
+        long previousNanos;
+        int lastRaw;
+
+        Compiled(LimitRule rule) {
+            this.rule = rule;
+            this.kind = rule.kind;
+            this.field = rule.field;
+            this.limit = rule.rawLimit;
+            this.sustain = rule.sustainFrames;
+            this.cutoff = rule.cutoff;
+        }
+
+        /** @return true exactly once, on the frame the rule trips */
+        boolean evaluate(int raw, long nanos) {
+            lastRaw = raw;
+
+            boolean violated = switch (kind) {
+                case ABOVE -> raw > limit;
+                case BELOW -> raw < limit;
+                case FLAG_SET -> raw != 0;
+                case RATE_ABOVE -> rateAbove(raw, nanos);
+            };
+
+            previousRaw = raw;
+            previousNanos = nanos;
+            hasPrevious = true;
+
+            run = violated ? run + 1 : 0;
+            if (tripped || run < sustain) return false;
+
+            tripped = true;
+            return true;
+        }
+
+        // |delta raw| * 1s > limit * dt, without division
+        private boolean rateAbove(int raw, long nanos) {
+            if (!hasPrevious) return false;
+            long dt = nanos - previousNanos;
+            if (dt <= 0) return false;
+            long delta = Math.abs((long) raw - previousRaw);
+            return delta * NANOS_PER_SECOND > (long) limit * dt;
+        }
+
+        void reset() {
+            run = 0;
+            tripped = false;
+        }
+    }
+}
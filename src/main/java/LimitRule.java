@@ -0,0 +1,93 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Immutable limit definition for the {@link LimitEngine}.
+ * <p>
+ * Thresholds are converted to the field's raw fixed-point units when the rule is
+ * built, so evaluation is a primitive int/long comparison per frame.
+ */
+public final class LimitRule {
+
+    enum Kind {
+        ABOVE,
+        BELOW,
+        RATE_ABOVE,
+        FLAG_SET
+    }
+
+    final String name;
+    final Kind kind;
+    final Field<?> field;
+    final int rawLimit;
+    final int sustainFrames;
+    final boolean cutoff;
+
+    private LimitRule(String name, Kind kind, Field<?> field, int rawLimit, int sustainFrames, boolean cutoff) {
+        this.name = name;
+        this.kind = kind;
+        this.field = field;
+        this.rawLimit = rawLimit;
+        this.sustainFrames = sustainFrames;
+        this.cutoff = cutoff;
+    }
+
+    // -------------------------
+    // Factories
+    // -------------------------
+
+    /** Trips when the value is strictly greater than {@code limit}. */
+    public static LimitRule above(Field<BigDecimal> field, BigDecimal limit) {
+        return new LimitRule(field + " > " + limit, Kind.ABOVE, field, toRaw(field, limit), 1, true);
+    }
+
+    /** Trips when the value is strictly less than {@code limit}. */
+    public static LimitRule below(Field<BigDecimal> field, BigDecimal limit) {
+        return new LimitRule(field + " < " + limit, Kind.BELOW, field, toRaw(field, limit), 1, true);
+    }
+
+    /** Trips when the value changes faster than {@code perSecond} (either direction) between two frames. */
+    public static LimitRule rateAbove(Field<BigDecimal> field, BigDecimal perSecond) {
+        return new LimitRule(field + " rate > " + perSecond + "/s", Kind.RATE_ABOVE, field, toRaw(field, perSecond), 1, true);
+    }
+
+    /** Trips when a flag such as {@link Field#CH1_CC} is set, i.e. on CC-mode entry. */
+    public static LimitRule whenSet(Field<Boolean> flag) {
+        return new LimitRule(flag + " set", Kind.FLAG_SET, flag, 1, 1, true);
+    }
+
+    // -------------------------
+    // Modifiers
+    // -------------------------
+
+    /** Condition must hold for {@code frames} consecutive frames before tripping. */
+    public LimitRule sustainedFor(int frames) {
+        if (frames < 1) throw new IllegalArgumentException("frames must be >= 1");
+        return new LimitRule(name, kind, field, rawLimit, frames, cutoff);
+    }
+
+    /** Report the trip only; leave the output on. */
+    public LimitRule alarmOnly() {
+        return new LimitRule(name, kind, field, rawLimit, sustainFrames, false);
+    }
+
+    public LimitRule named(String name) {
+        return new LimitRule(name, kind, field, rawLimit, sustainFrames, cutoff);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    private static int toRaw(Field<BigDecimal> field, BigDecimal value) {
+        return value
+                .setScale(field.scale(), RoundingMode.HALF_UP)
+                .unscaledValue()
+                .intValueExact();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * One tripped {@link LimitRule}.
+ *
+ * @param rawValue     field value that tripped, in raw fixed-point units
+ * @param frameNanos   {@link System#nanoTime()} when the offending frame completed
+ * @param cutoffNanos  time from frame to output-off written, or -1 for alarm-only rules
+ *                     and when the output-off could not be queued
+ */
+public record LimitTrip(
+        LimitRule rule,
+        int rawValue,
+        long frameNanos,
+        long cutoffNanos
+) {}
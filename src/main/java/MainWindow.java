@@ -1,5 +1,10 @@
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 public final class MainWindow {
@@ -17,6 +22,19 @@ public final class MainWindow {
 
         var state = new State(host, ports);
 
+        // Minimized: visible sessions drop to keep-alive polling
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowIconified(WindowEvent e) {
+                state.setIconified(true);
+            }
+
+            @Override
+            public void windowDeiconified(WindowEvent e) {
+                state.setIconified(false);
+            }
+        });
+
         frame.setContentPane(host);
         frame.setVisible(true);
 
@@ -29,7 +47,8 @@ public final class MainWindow {
 
     private enum Screen {
         SELECTION("selection"),
-        OVERVIEW("overview");
+        OVERVIEW("overview"),
+        DASHBOARD("dashboard");
 
         final String key;
 
@@ -48,6 +67,12 @@ public final class MainWindow {
         private final List<SerialPortInfo> ports;
 
         private DeviceSession session;
+        private DemandToken viewDemand;
+        private ScpiServer scpi;
+        private DashboardView dashboard;
+        private final List<DeviceSession> dashboardSessions = new ArrayList<>();
+        private boolean iconified;
+        private boolean overviewShowing;
 
         State(JPanel host, List<SerialPortInfo> ports) {
             this.host = host;
@@ -63,7 +88,8 @@ public final class MainWindow {
 
             var selectionView = DeviceSelectionView.createView(
                     ports,
-                    this::openOverview
+                    this::openOverview,
+                    this::openDashboard
             );
 
             host.add(selectionView, Screen.SELECTION.key);
@@ -95,6 +121,14 @@ public final class MainWindow {
 
             host.add(overview.view(), Screen.OVERVIEW.key);
 
+            viewDemand = session.demand(PollDemand.KEEP_ALIVE);
+            overview.view().addHierarchyListener(e -> {
+                if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+                    overviewShowing = e.getComponent().isShowing();
+                    updateViewDemand();
+                }
+            });
+
             // Device -> UI bindings
             FieldBinder.bind(session, overview.bindings());
 
@@ -117,9 +151,69 @@ public final class MainWindow {
             }));
 
             session.setUpdatesEnabled(true);
+            startScpiIfConfigured();
             show(Screen.OVERVIEW);
         }
 
+        void openDashboard() {
+            closeSessionIfAny();
+
+            var opened = new ArrayList<SerialPortInfo>();
+            for (var port : ports) {
+                try {
+                    var s = DeviceSession.create(port.systemPortName());
+                    s.setUpdatesEnabled(true);
+                    dashboardSessions.add(s);
+                    opened.add(port);
+                } catch (IllegalStateException e) {
+                    IO.println("Dashboard: " + e.getMessage());
+                }
+            }
+
+            dashboard = DashboardView.create(
+                    dashboardSessions,
+                    opened.stream().map(SerialPortInfo::toString).toList(),
+                    idx -> openOverview(opened.get(idx))
+            );
+            dashboard.setSuspended(iconified);
+
+            var root = LabPanel.border(20);
+            var back = LabButton.create("Back");
+            back.addActionListener(_ -> showSelection());
+            root.add(back, BorderLayout.NORTH);
+            root.add(dashboard.view(), BorderLayout.CENTER);
+
+            host.add(root, Screen.DASHBOARD.key);
+            show(Screen.DASHBOARD);
+        }
+
+        /** Automation access to the open device when {@code lab.scpi.port} is set. */
+        private void startScpiIfConfigured() {
+            var port = Integer.getInteger(ScpiServer.PORT_PROPERTY);
+            if (port == null) return;
+            try {
+                scpi = ScpiServer.start(session, port);
+                IO.println("SCPI server for " + session.comPort() + " on port " + scpi.port());
+            } catch (IOException e) {
+                IO.println("SCPI server not started: " + e.getMessage());
+            }
+        }
+
+        // -----------------------------
+        // Poll demand
+        // -----------------------------
+
+        void setIconified(boolean iconified) {
+            this.iconified = iconified;
+            updateViewDemand();
+            if (dashboard != null) dashboard.setSuspended(iconified);
+        }
+
+        private void updateViewDemand() {
+            if (viewDemand == null) return;
+            viewDemand.set(overviewShowing && !iconified ? PollDemand.FULL : PollDemand.KEEP_ALIVE);
+        }
+
         // -----------------------------
         // Helpers
         // -----------------------------
@@ -132,13 +226,35 @@ public final class MainWindow {
         }
 
         private void closeSessionIfAny() {
+            closeDashboardIfAny();
+
             if (session == null) {
                 return;
             }
 
+            if (scpi != null) {
+                scpi.close();
+                scpi = null;
+            }
+            viewDemand.close();
+            viewDemand = null;
             session.setUpdatesEnabled(false);
             session.stop();
             session = null;
         }
+
+        private void closeDashboardIfAny() {
+            if (dashboard == null) {
+                return;
+            }
+
+            dashboard.close();
+            dashboard = null;
+            for (var s : dashboardSessions) {
+                s.setUpdatesEnabled(false);
+                s.stop();
+            }
+            dashboardSessions.clear();
+        }
     }
 }
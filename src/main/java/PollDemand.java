@@ -0,0 +1,14 @@
+/**
+ * How much polling a consumer of a session needs, lowest first.
+ * A session polls at the highest level any open {@link DemandToken} asks for.
+ */
+public enum PollDemand {
+    /** Nothing needs data: the poll thread parks without timed wakeups. */
+    PARKED,
+
+    /** Not visible (minimized, other card): one read-all every few seconds keeps the link checked. */
+    KEEP_ALIVE,
+
+    /** A visible view, recorder or alarm needs every frame. */
+    FULL
+}
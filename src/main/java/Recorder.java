@@ -0,0 +1,167 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Appends every decoded frame of a session to a recording directory
+ * (format: {@link RecordingFormat}).
+ * <p>
+ * Records go into a direct buffer on the parser thread and hit the disk when the
+ * buffer is full or once per second. Segments roll over at {@value #SEGMENT_BYTES} bytes.
+ * Each completed block of records appends one entry to the segment's index file
+ * (read by {@link RecordingIndex}), after the block itself has been written.
+ * An I/O error stops the recorder; it does not affect the session.
+ */
+public final class Recorder implements FrameStage, AutoCloseable {
+
+    private static final long SEGMENT_BYTES = 64L << 20;
+    private static final long FLUSH_NANOS = 1_000_000_000L;
+    private static final Field<?>[] FIELDS = Field.values();
+
+    public static Recorder start(DeviceSession session, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        var recorder = new Recorder(session, directory);
+        recorder.demand = session.demand(PollDemand.FULL);
+        session.addStage(recorder);
+        return recorder;
+    }
+
+    private final DeviceSession session;
+    private final Path directory;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final IndexBlock block = new IndexBlock(FIELDS.length);
+    private final ByteBuffer indexEntry = ByteBuffer.allocate(RecordingFormat.indexEntryLength(FIELDS.length));
+    private final int recordLength = Long.BYTES + Short.BYTES * FIELDS.length;
+
+    // Wall clock anchor: frame nanos -> epoch micros
+    private final long anchorEpochMicros;
+    private final long anchorNanos;
+
+    private FileChannel segment;
+    private FileChannel index;
+    private long segmentBytes;
+    private long lastFlushNanos;
+    private boolean closed;
+    private DemandToken demand;
+
+    /** @param session may be null; frames are then fed to {@link #onFrame} directly */
+    Recorder(DeviceSession session, Path directory) {
+        this.session = session;
+        this.directory = directory;
+        this.anchorNanos = System.nanoTime();
+        this.anchorEpochMicros = ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    // -------------------------
+    // FrameStage
+    // -------------------------
+
+    @Override
+    public synchronized void onFrame(FrameDecoder frame, long frameNanos) {
+        if (closed) return;
+
+        long epochMicros = anchorEpochMicros + (frameNanos - anchorNanos) / 1_000;
+
+        try {
+            if (segment == null || segmentBytes >= SEGMENT_BYTES) roll(epochMicros);
+
+            if (buffer.remaining() < recordLength) flush();
+
+            buffer.putLong(epochMicros);
+            block.record(epochMicros, segmentBytes);
+            for (int c = 0; c < FIELDS.length; c++) {
+                int raw = frame.raw(FIELDS[c]);
+                buffer.putShort((short) raw);
+                block.value(c, raw);
+            }
+            segmentBytes += recordLength;
+            if (block.isFull()) writeIndexEntry();
+
+            if (frameNanos - lastFlushNanos >= FLUSH_NANOS) {
+                flush();
+                lastFlushNanos = frameNanos;
+            }
+        } catch (IOException e) {
+            IO.println("Recorder " + directory + " stopped: " + e.getMessage());
+            closeQuietly();
+        }
+    }
+
+    @Override
+    public long fieldMask() {
+        return FrameDecoder.FIELD_SLOTS;
+    }
+
+    // -------------------------
+    // Lifecycle
+    // -------------------------
+
+    @Override
+    public void close() throws IOException {
+        if (session != null) {
+            session.removeStage(this);
+            demand.close();
+        }
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            if (segment != null) closeSegment();
+        }
+    }
+
+    private void roll(long epochMicros) throws IOException {
+        if (segment != null) closeSegment();
+
+        var path = RecordingFormat.segmentPath(directory, epochMicros);
+        segment = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        index = FileChannel.open(RecordingFormat.indexPath(path), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+        var header = RecordingFormat.encodeHeader(FIELDS);
+        segmentBytes = header.remaining();
+        while (header.hasRemaining()) segment.write(header);
+
+        var indexHeader = RecordingFormat.encodeIndexHeader(FIELDS.length);
+        while (indexHeader.hasRemaining()) index.write(indexHeader);
+    }
+
+    private void closeSegment() throws IOException {
+        if (!block.isEmpty()) writeIndexEntry();
+        flush();
+        segment.close();
+        index.close();
+    }
+
+    /** Flushes first: an index entry never points past what is on disk. */
+    private void writeIndexEntry() throws IOException {
+        flush();
+        block.writeTo(indexEntry.clear());
+        indexEntry.flip();
+        while (indexEntry.hasRemaining()) index.write(indexEntry);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) segment.write(buffer);
+        buffer.clear();
+    }
+
+    private void closeQuietly() {
+        closed = true;
+        if (demand != null) demand.close();
+        try {
+            if (segment != null) segment.close();
+            if (index != null) index.close();
+        } catch (IOException ignored) {
+            // already failing
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Forward iterator over all records of a recording, segment after segment.
+ * Reads in fixed-size blocks into one reused buffer, so heap use does not
+ * depend on recording length. A truncated trailing record is ignored.
+ */
+final class RecordingCursor implements AutoCloseable {
+
+    private static final int BLOCK_BYTES = 1 << 20;
+
+    private final List<Path> segments;
+    private final ByteBuffer block = ByteBuffer.allocate(BLOCK_BYTES);
+
+    private RecordingFormat.Header header;
+    private int segmentIndex = -1;
+    private FileChannel channel;
+    private long filePosition;
+    private int recordStart = -1;
+
+    RecordingCursor(Path recording) throws IOException {
+        this.segments = RecordingFormat.segments(recording);
+        if (segments.isEmpty()) throw new IOException(recording + ": no recording segments");
+
+        try (var first = FileChannel.open(segments.getFirst(), StandardOpenOption.READ)) {
+            this.header = RecordingFormat.readHeader(first, segments.getFirst());
+        }
+        block.limit(0);
+    }
+
+    RecordingFormat.Header header() {
+        return header;
+    }
+
+    /** Advances to the next record; false at the end of the last segment. */
+    boolean next() throws IOException {
+        int len = header.recordLength();
+
+        if (recordStart >= 0) block.position(recordStart + len);
+
+        while (block.remaining() < len) {
+            if (channel != null && refill()) continue;
+            if (!openNextSegment()) {
+                recordStart = -1;
+                return false;
+            }
+        }
+
+        recordStart = block.position();
+        return true;
+    }
+
+    long epochMicros() {
+        return block.getLong(recordStart);
+    }
+
+    int raw(int column) {
+        return block.getShort(recordStart + Long.BYTES + column * Short.BYTES) & 0xFFFF;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) channel.close();
+    }
+
+    // -------------------------
+    // Block / segment handling
+    // -------------------------
+
+    private boolean refill() throws IOException {
+        block.compact();
+        int n = channel.read(block, filePosition);
+        block.flip();
+        recordStart = -1;
+        if (n <= 0) return false;
+        filePosition += n;
+        return true;
+    }
+
+    private boolean openNextSegment() throws IOException {
+        if (channel != null) channel.close();
+        channel = null;
+
+        if (++segmentIndex >= segments.size()) return false;
+
+        var path = segments.get(segmentIndex);
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        var segmentHeader = RecordingFormat.readHeader(channel, path);
+        if (!segmentHeader.names().equals(header.names())) {
+            throw new IOException(path + ": field layout differs from first segment");
+        }
+
+        filePosition = segmentHeader.length();
+        block.clear().limit(0);
+        recordStart = -1;
+        return true;
+    }
+}
@@ -0,0 +1,285 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Streams a recording to CSV or TSV.
+ * <p>
+ * Reads block by block through {@link RecordingCursor} and writes through a large
+ * buffer into a {@link FileChannel}; heap use is constant regardless of recording length.
+ * Values are formatted straight from raw fixed-point ints, timestamps as ISO-8601 UTC
+ * with microseconds.
+ */
+public final class RecordingExporter {
+
+    public enum Format {
+        CSV((byte) ','),
+        TSV((byte) '\t');
+
+        private final byte separator;
+
+        Format(byte separator) {
+            this.separator = separator;
+        }
+    }
+
+    /**
+     * @param interval resampling grid; {@code null} writes one row per change of any selected field
+     */
+    public record Options(
+            Instant from,
+            Instant to,
+            List<Field<?>> fields,
+            Format format,
+            Duration interval
+    ) {
+        public static Options resampled(Instant from, Instant to, List<Field<?>> fields, Format format, Duration interval) {
+            if (interval.isZero() || interval.isNegative()) throw new IllegalArgumentException("interval must be positive");
+            return new Options(from, to, fields, format, interval);
+        }
+
+        public static Options changesOnly(Instant from, Instant to, List<Field<?>> fields, Format format) {
+            return new Options(from, to, fields, format, null);
+        }
+    }
+
+    /** A held sample is not carried forward across a gap longer than this (or the interval, if larger). */
+    private static final long MAX_HOLD_MICROS = 1_000_000L;
+
+    private RecordingExporter() {
+    }
+
+    /**
+     * @return number of data rows written
+     */
+    public static long export(Path recording, Options options, Path target) throws IOException {
+        long fromMicros = toMicros(options.from());
+        long toMicros = toMicros(options.to());
+
+        try (var cursor = new RecordingCursor(recording);
+             var sink = new Sink(target, options.format().separator)) {
+
+            var header = cursor.header();
+            int n = options.fields().size();
+            int[] columns = new int[n];
+            int[] scales = new int[n];
+            for (int i = 0; i < n; i++) {
+                columns[i] = header.columnOf(options.fields().get(i).name());
+                scales[i] = header.scales()[columns[i]];
+            }
+
+            sink.headerRow(options.fields());
+
+            return options.interval() == null
+                    ? changesOnly(cursor, sink, columns, scales, fromMicros, toMicros)
+                    : resampled(cursor, sink, columns, scales, fromMicros, toMicros,
+                    options.interval().toNanos() / 1_000);
+        }
+    }
+
+    // -------------------------
+    // Row selection
+    // -------------------------
+
+    private static long changesOnly(RecordingCursor cursor, Sink sink, int[] columns, int[] scales,
+                                    long from, long to) throws IOException {
+        int[] last = new int[columns.length];
+        boolean first = true;
+        long rows = 0;
+
+        while (cursor.next()) {
+            long t = cursor.epochMicros();
+            if (t < from) continue;
+            if (t >= to) break;
+
+            boolean changed = first;
+            for (int i = 0; i < columns.length; i++) {
+                int v = cursor.raw(columns[i]);
+                if (v != last[i]) {
+                    last[i] = v;
+                    changed = true;
+                }
+            }
+            if (!changed) continue;
+
+            first = false;
+            sink.row(t, last, scales);
+            rows++;
+        }
+        return rows;
+    }
+
+    private static long resampled(RecordingCursor cursor, Sink sink, int[] columns, int[] scales,
+                                  long from, long to, long interval) throws IOException {
+        long maxHold = Math.max(interval, MAX_HOLD_MICROS);
+        int[] held = new int[columns.length];
+        long heldAt = Long.MIN_VALUE;
+        long tick = Math.ceilDiv(from, interval) * interval;
+        long rows = 0;
+
+        while (cursor.next() && tick < to) {
+            long t = cursor.epochMicros();
+
+            // Every tick before this record takes the previously held sample
+            while (tick < t && tick < to) {
+                if (heldAt != Long.MIN_VALUE && tick - heldAt <= maxHold) {
+                    sink.row(tick, held, scales);
+                    rows++;
+                }
+                tick += interval;
+            }
+
+            for (int i = 0; i < columns.length; i++) held[i] = cursor.raw(columns[i]);
+            heldAt = t;
+        }
+
+        // Ticks that coincide with or follow the final record, up to its hold time
+        while (heldAt != Long.MIN_VALUE && tick < to && tick - heldAt <= maxHold) {
+            sink.row(tick, held, scales);
+            rows++;
+            tick += interval;
+        }
+        return rows;
+    }
+
+    /** Saturates, so {@code Instant.MIN}/{@code Instant.MAX} work as open range ends. */
+    private static long toMicros(Instant instant) {
+        try {
+            return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+        } catch (ArithmeticException e) {
+            return instant.isBefore(Instant.EPOCH) ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    // -------------------------
+    // Output formatting
+    // -------------------------
+
+    private static final class Sink implements AutoCloseable {
+
+        private static final int BUFFER_BYTES = 4 << 20;
+        private static final int MAX_ROW_BYTES = 32 + 8 * 64;
+        private static final long MICROS_PER_DAY = 86_400_000_000L;
+
+        private final FileChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final byte separator;
+
+        private long dayStart = Long.MIN_VALUE;
+        private final byte[] datePrefix = new byte[11]; // "yyyy-MM-ddT"
+
+        Sink(Path target, byte separator) throws IOException {
+            this.channel = FileChannel.open(target,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            this.separator = separator;
+        }
+
+        void headerRow(List<Field<?>> fields) throws IOException {
+            var sb = new StringBuilder("time");
+            for (var f : fields) sb.append((char) separator).append(f.name());
+            sb.append('\n');
+            ensure(sb.length());
+            buf.put(sb.toString().getBytes(StandardCharsets.US_ASCII));
+        }
+
+        void row(long epochMicros, int[] raw, int[] scales) throws IOException {
+            ensure(MAX_ROW_BYTES);
+            timestamp(epochMicros);
+            for (int i = 0; i < raw.length; i++) {
+                buf.put(separator);
+                fixed(raw[i], scales[i]);
+            }
+            buf.put((byte) '\n');
+        }
+
+        // yyyy-MM-ddTHH:mm:ss.uuuuuuZ
+        private void timestamp(long epochMicros) {
+            long day = Math.floorDiv(epochMicros, MICROS_PER_DAY) * MICROS_PER_DAY;
+            if (day != dayStart) {
+                dayStart = day;
+                var date = LocalDate.ofEpochDay(day / MICROS_PER_DAY);
+                byte[] s = (date.toString() + "T").getBytes(StandardCharsets.US_ASCII);
+                System.arraycopy(s, 0, datePrefix, 0, datePrefix.length);
+            }
+            buf.put(datePrefix);
+
+            long micros = epochMicros - day;
+            long seconds = micros / 1_000_000;
+            digits(seconds / 3600, 2);
+            buf.put((byte) ':');
+            digits(seconds / 60 % 60, 2);
+            buf.put((byte) ':');
+            digits(seconds % 60, 2);
+            buf.put((byte) '.');
+            digits(micros % 1_000_000, 6);
+            buf.put((byte) 'Z');
+        }
+
+        private void fixed(int raw, int scale) {
+            if (scale == 0) {
+                integer(raw);
+                return;
+            }
+            int pow = POW10[scale];
+            integer(raw / pow);
+            buf.put((byte) '.');
+            digits(raw % pow, scale);
+        }
+
+        private void integer(long v) {
+            if (v == 0) {
+                buf.put((byte) '0');
+                return;
+            }
+            int start = buf.position();
+            while (v > 0) {
+                buf.put((byte) ('0' + v % 10));
+                v /= 10;
+            }
+            // reverse in place
+            for (int i = start, j = buf.position() - 1; i < j; i++, j--) {
+                byte tmp = buf.get(i);
+                buf.put(i, buf.get(j));
+                buf.put(j, tmp);
+            }
+        }
+
+        private void digits(long v, int width) {
+            for (int p = width - 1; p >= 0; p--) {
+                buf.put((byte) ('0' + v / POW10[p] % 10));
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buf.remaining() < bytes) drain();
+        }
+
+        private void drain() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) channel.write(buf);
+            buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+            } finally {
+                channel.close();
+            }
+        }
+
+        private static final int[] POW10 = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+    }
+}
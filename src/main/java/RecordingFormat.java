@@ -0,0 +1,114 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * On-disk layout of recordings written by {@link Recorder}.
+ * <p>
+ * A recording is a directory of segment files {@code segment-<epochMicros>.labrec},
+ * which sort by name in time order. Each segment:
+ * <pre>
+ * header:  "LABREC01"  u8 fieldCount  { u8 nameLength  name(ASCII)  u8 scale } * fieldCount
+ * records: i64 epochMicros  u16 raw * fieldCount           (fixed length, big-endian)
+ * </pre>
+ * Next to each segment, {@code segment-<epochMicros>.labidx} summarizes it in blocks of
+ * up to {@value #INDEX_BLOCK_RECORDS} consecutive records (see {@link RecordingIndex}):
+ * <pre>
+ * header:  "LABIDX01"  u8 fieldCount
+ * entries: i64 firstMicros  i64 lastMicros  i64 offset  i32 records  { u16 min  u16 max } * fieldCount
+ * </pre>
+ */
+final class RecordingFormat {
+
+    static final long MAGIC = 0x4C41425245433031L; // "LABREC01"
+    static final String SEGMENT_SUFFIX = ".labrec";
+
+    static final long INDEX_MAGIC = 0x4C41424944583031L; // "LABIDX01"
+    static final String INDEX_SUFFIX = ".labidx";
+    static final int INDEX_HEADER_LENGTH = 9;
+    static final int INDEX_BLOCK_RECORDS = 1024;
+
+    record Header(
+            List<String> names,
+            int[] scales,
+            int length
+    ) {
+        int recordLength() {
+            return Long.BYTES + Short.BYTES * names.size();
+        }
+
+        int columnOf(String name) {
+            int idx = names.indexOf(name);
+            if (idx < 0) throw new IllegalArgumentException("Recording has no field " + name);
+            return idx;
+        }
+    }
+
+    private RecordingFormat() {
+    }
+
+    static Path segmentPath(Path directory, long epochMicros) {
+        return directory.resolve(String.format("segment-%020d%s", epochMicros, SEGMENT_SUFFIX));
+    }
+
+    static Path indexPath(Path segment) {
+        String name = segment.getFileName().toString();
+        return segment.resolveSibling(name.substring(0, name.length() - SEGMENT_SUFFIX.length()) + INDEX_SUFFIX);
+    }
+
+    static int indexEntryLength(int fieldCount) {
+        return 3 * Long.BYTES + Integer.BYTES + 2 * Short.BYTES * fieldCount;
+    }
+
+    static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    static ByteBuffer encodeHeader(Field<?>[] fields) {
+        var buf = ByteBuffer.allocate(9 + fields.length * 34);
+        buf.putLong(MAGIC);
+        buf.put((byte) fields.length);
+        for (var f : fields) {
+            byte[] name = f.name().getBytes(StandardCharsets.US_ASCII);
+            buf.put((byte) name.length).put(name).put((byte) f.scale());
+        }
+        return buf.flip();
+    }
+
+    static ByteBuffer encodeIndexHeader(int fieldCount) {
+        return ByteBuffer.allocate(INDEX_HEADER_LENGTH).putLong(INDEX_MAGIC).put((byte) fieldCount).flip();
+    }
+
+    static Header readHeader(FileChannel channel, Path source) throws IOException {
+        var buf = ByteBuffer.allocate(4096);
+        channel.read(buf, 0);
+        buf.flip();
+
+        if (buf.remaining() < 9 || buf.getLong() != MAGIC) {
+            throw new IOException(source + ": not a recording segment");
+        }
+
+        int count = buf.get() & 0xFF;
+        var names = new ArrayList<String>(count);
+        int[] scales = new int[count];
+        for (int i = 0; i < count; i++) {
+            byte[] name = new byte[buf.get() & 0xFF];
+            buf.get(name);
+            names.add(new String(name, StandardCharsets.US_ASCII));
+            scales[i] = buf.get();
+        }
+
+        return new Header(List.copyOf(names), scales, buf.position());
+    }
+}
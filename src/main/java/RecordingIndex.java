@@ -0,0 +1,354 @@
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Time and value lookups in a recording without scanning it.
+ * <p>
+ * Built from the {@code .labidx} files the {@link Recorder} writes next to its segments:
+ * one entry per block of records, with its time span, file offset and per-field
+ * min/max. Segments are memory-mapped; a range query binary-searches the blocks and
+ * reads only the records of the blocks it overlaps, and a threshold query skips every
+ * block whose min/max rules it out (or takes it whole without reading it).
+ * <p>
+ * Records not covered by an index file (the tail the recorder is still writing, or
+ * recordings made before indexing) are summarized on open; a missing index file of a
+ * finished segment is written back so the next open is fast. The index is a snapshot
+ * of the recording at {@link #open} time.
+ */
+public final class RecordingIndex implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface SampleVisitor {
+        void sample(long epochMicros, int raw);
+    }
+
+    /** First and last sample (both inclusive) of a run that met the condition. */
+    public record Interval(Instant from, Instant to) {}
+
+    private static final ValueLayout.OfLong I64 = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfShort U16 = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /** One index entry; {@code min}/{@code max} per column, raw. */
+    private record Block(int segment, long offset, int records, long firstMicros, long lastMicros, int[] min, int[] max) {}
+
+    public static RecordingIndex open(Path recording) throws IOException {
+        var paths = RecordingFormat.segments(recording);
+        if (paths.isEmpty()) throw new IOException(recording + ": no recording segments");
+
+        var arena = Arena.ofShared();
+        try {
+            RecordingFormat.Header header;
+            try (var first = FileChannel.open(paths.getFirst(), StandardOpenOption.READ)) {
+                header = RecordingFormat.readHeader(first, paths.getFirst());
+            }
+
+            var data = new MemorySegment[paths.size()];
+            var blocks = new ArrayList<Block>();
+            for (int i = 0; i < paths.size(); i++) {
+                var path = paths.get(i);
+                try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    var segmentHeader = RecordingFormat.readHeader(channel, path);
+                    if (!segmentHeader.names().equals(header.names())) {
+                        throw new IOException(path + ": field layout differs from first segment");
+                    }
+                    data[i] = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+                    loadBlocks(i, path, segmentHeader, data[i], i < paths.size() - 1, blocks);
+                }
+            }
+            return new RecordingIndex(arena, header, data, blocks.toArray(Block[]::new));
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    private final Arena arena;
+    private final RecordingFormat.Header header;
+    private final int recordLength;
+    private final MemorySegment[] data;
+    private final Block[] blocks;
+
+    private RecordingIndex(Arena arena, RecordingFormat.Header header, MemorySegment[] data, Block[] blocks) {
+        this.arena = arena;
+        this.header = header;
+        this.recordLength = header.recordLength();
+        this.data = data;
+        this.blocks = blocks;
+    }
+
+    /** Unmaps the segments; no query may run concurrently. */
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    // -------------------------
+    // Queries
+    // -------------------------
+
+    /** Visits every sample of {@code field} in {@code [from, to)}; returns how many. */
+    public long forEach(Field<?> field, Instant from, Instant to, SampleVisitor visitor) {
+        int column = header.columnOf(field.name());
+        long f = toMicros(from);
+        long t = toMicros(to);
+
+        long n = 0;
+        for (int b = firstBlockEndingAtOrAfter(f); b < blocks.length && blocks[b].firstMicros < t; b++) {
+            var block = blocks[b];
+            var segment = data[block.segment];
+            for (int r = 0; r < block.records; r++) {
+                long off = block.offset + (long) r * recordLength;
+                long micros = segment.get(I64, off);
+                if (micros < f) continue;
+                if (micros >= t) break;
+                visitor.sample(micros, raw(segment, off, column));
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /** Runs within {@code [from, to)} where {@code field} was strictly above {@code threshold}. */
+    public List<Interval> whenAbove(Field<BigDecimal> field, BigDecimal threshold, Instant from, Instant to) {
+        long limit = threshold.movePointRight(field.scale()).setScale(0, RoundingMode.FLOOR).longValue();
+        return intervals(field, from, to, Math.clamp(limit, -1, 0xFFFF), true);
+    }
+
+    /** Runs within {@code [from, to)} where {@code field} was strictly below {@code threshold}. */
+    public List<Interval> whenBelow(Field<BigDecimal> field, BigDecimal threshold, Instant from, Instant to) {
+        long limit = threshold.movePointRight(field.scale()).setScale(0, RoundingMode.CEILING).longValue();
+        return intervals(field, from, to, Math.clamp(limit, 0, 0x10000), false);
+    }
+
+    private List<Interval> intervals(Field<?> field, Instant from, Instant to, int limit, boolean above) {
+        int column = header.columnOf(field.name());
+        long f = toMicros(from);
+        long t = toMicros(to);
+
+        var out = new ArrayList<Interval>();
+        long start = -1;
+        long end = -1;
+
+        for (int b = firstBlockEndingAtOrAfter(f); b < blocks.length && blocks[b].firstMicros < t; b++) {
+            var block = blocks[b];
+            int min = block.min[column];
+            int max = block.max[column];
+            boolean none = above ? max <= limit : min >= limit;
+            boolean all = above ? min > limit : max < limit;
+
+            if (none) {
+                if (start >= 0) out.add(interval(start, end));
+                start = -1;
+                continue;
+            }
+            if (all && block.firstMicros >= f && block.lastMicros < t) {
+                if (start < 0) start = block.firstMicros;
+                end = block.lastMicros;
+                continue;
+            }
+
+            var segment = data[block.segment];
+            for (int r = 0; r < block.records; r++) {
+                long off = block.offset + (long) r * recordLength;
+                long micros = segment.get(I64, off);
+                if (micros < f) continue;
+                if (micros >= t) break;
+
+                int v = raw(segment, off, column);
+                if (above ? v > limit : v < limit) {
+                    if (start < 0) start = micros;
+                    end = micros;
+                } else if (start >= 0) {
+                    out.add(interval(start, end));
+                    start = -1;
+                }
+            }
+        }
+        if (start >= 0) out.add(interval(start, end));
+        return out;
+    }
+
+    /** Lowest block whose last record is at or after {@code micros}. */
+    private int firstBlockEndingAtOrAfter(long micros) {
+        int lo = 0;
+        int hi = blocks.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (blocks[mid].lastMicros < micros) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static int raw(MemorySegment segment, long recordOffset, int column) {
+        return segment.get(U16, recordOffset + Long.BYTES + (long) column * Short.BYTES) & 0xFFFF;
+    }
+
+    private static Interval interval(long fromMicros, long toMicros) {
+        return new Interval(Instant.EPOCH.plus(fromMicros, ChronoUnit.MICROS), Instant.EPOCH.plus(toMicros, ChronoUnit.MICROS));
+    }
+
+    private static long toMicros(Instant instant) {
+        try {
+            return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+        } catch (ArithmeticException e) {
+            return instant.isBefore(Instant.EPOCH) ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    // -------------------------
+    // Loading
+    // -------------------------
+
+    private static void loadBlocks(
+            int segment, Path path, RecordingFormat.Header header, MemorySegment data,
+            boolean finished, List<Block> out
+    ) throws IOException {
+        int fields = header.names().size();
+        int recordLength = header.recordLength();
+        int entryLength = RecordingFormat.indexEntryLength(fields);
+        long end = header.length() + (data.byteSize() - header.length()) / recordLength * recordLength;
+
+        var indexFile = RecordingFormat.indexPath(path);
+        boolean indexed = Files.isRegularFile(indexFile);
+        long covered = header.length();
+
+        if (indexed) {
+            var buf = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+            if (buf.remaining() >= RecordingFormat.INDEX_HEADER_LENGTH
+                    && buf.getLong() == RecordingFormat.INDEX_MAGIC
+                    && (buf.get() & 0xFF) == fields) {
+                // Stop at the first entry that does not continue the previous one or is not on disk yet
+                while (buf.remaining() >= entryLength) {
+                    var block = readEntry(segment, fields, buf);
+                    if (block.offset != covered || block.offset + (long) block.records * recordLength > end) break;
+                    out.add(block);
+                    covered = block.offset + (long) block.records * recordLength;
+                }
+            } else {
+                indexed = false;
+            }
+        }
+
+        // Summarize what the index file does not cover
+        var acc = new IndexBlock(fields);
+        var entries = ByteBuffer.allocate(entryLength * (int) Math.min(
+                Integer.MAX_VALUE / entryLength,
+                (end - covered) / recordLength / RecordingFormat.INDEX_BLOCK_RECORDS + 1));
+        for (long off = covered; off < end; off += recordLength) {
+            acc.record(data.get(I64, off), off);
+            for (int c = 0; c < fields; c++) acc.value(c, raw(data, off, c));
+            if (acc.isFull()) acc.writeTo(entries);
+        }
+        if (!acc.isEmpty()) acc.writeTo(entries);
+
+        entries.flip();
+        if (!indexed && finished) writeIndex(indexFile, fields, entries.duplicate());
+        while (entries.hasRemaining()) out.add(readEntry(segment, fields, entries));
+    }
+
+    private static Block readEntry(int segment, int fields, ByteBuffer buf) {
+        long first = buf.getLong();
+        long last = buf.getLong();
+        long offset = buf.getLong();
+        int records = buf.getInt();
+        int[] min = new int[fields];
+        int[] max = new int[fields];
+        for (int c = 0; c < fields; c++) {
+            min[c] = buf.getShort() & 0xFFFF;
+            max[c] = buf.getShort() & 0xFFFF;
+        }
+        return new Block(segment, offset, records, first, last, min, max);
+    }
+
+    private static void writeIndex(Path file, int fields, ByteBuffer entries) {
+        var tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            var header = RecordingFormat.encodeIndexHeader(fields);
+            while (header.hasRemaining()) channel.write(header);
+            while (entries.hasRemaining()) channel.write(entries);
+        } catch (IOException e) {
+            // Read-only recording: the in-memory index still answers queries
+            return;
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ignored) {
+            // Same as above; the next open summarizes the segment again
+        }
+    }
+}
+
+/* ============================================================
+ * Index entry accumulation
+ * ============================================================ */
+
+/**
+ * Time span, offset and per-column min/max of up to
+ * {@link RecordingFormat#INDEX_BLOCK_RECORDS} consecutive records.
+ * Shared by the {@link Recorder} (live) and {@link RecordingIndex} (unindexed tails).
+ */
+final class IndexBlock {
+
+    private final int[] min;
+    private final int[] max;
+
+    private long firstMicros;
+    private long lastMicros;
+    private long offset;
+    private int records;
+
+    IndexBlock(int fields) {
+        this.min = new int[fields];
+        this.max = new int[fields];
+    }
+
+    /** Starts a record at segment file {@code offset}; follow with {@link #value} for each column. */
+    void record(long epochMicros, long offset) {
+        if (records == 0) {
+            firstMicros = epochMicros;
+            this.offset = offset;
+            Arrays.fill(min, Integer.MAX_VALUE);
+            Arrays.fill(max, Integer.MIN_VALUE);
+        }
+        lastMicros = epochMicros;
+        records++;
+    }
+
+    void value(int column, int raw) {
+        if (raw < min[column]) min[column] = raw;
+        if (raw > max[column]) max[column] = raw;
+    }
+
+    boolean isEmpty() {
+        return records == 0;
+    }
+
+    boolean isFull() {
+        return records == RecordingFormat.INDEX_BLOCK_RECORDS;
+    }
+
+    /** Appends the entry and starts a new block. */
+    void writeTo(ByteBuffer buf) {
+        buf.putLong(firstMicros).putLong(lastMicros).putLong(offset).putInt(records);
+        for (int c = 0; c < min.length; c++) buf.putShort((short) min[c]).putShort((short) max[c]);
+        records = 0;
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.List;
+
+/**
+ * Decodes a fixed list of registers of a {@link RegisterMap} into an {@code int[]} of raw values.
+ * <p>
+ * The register list is packed at load time into one {@code int} per register (offset,
+ * width or bit, target slot), so a decode is a single pass over a primitive array with
+ * no per-register objects or virtual calls.
+ */
+final class RegisterDecoder {
+
+    private static final int KIND_U8 = 0;
+    private static final int KIND_U16 = 1;
+    private static final int KIND_FLAG = 2;
+
+    // offset << 16 | slot << 8 | kind << 4 | bit
+    private final int[] steps;
+
+    /**
+     * @param registers registers to decode
+     * @param slots     target index in the output array for each register
+     */
+    RegisterDecoder(List<RegisterMap.Register> registers, int[] slots) {
+        int[] steps = new int[registers.size()];
+        for (int i = 0; i < steps.length; i++) {
+            var r = registers.get(i);
+            int kind = r.isFlag() ? KIND_FLAG : r.width() == 1 ? KIND_U8 : KIND_U16;
+            int bit = r.isFlag() ? r.bit() : 0;
+            steps[i] = r.offset() << 16 | slots[i] << 8 | kind << 4 | bit;
+        }
+        this.steps = steps;
+    }
+
+    void decode(byte[] f, int[] out) {
+        for (int step : steps) {
+            int offset = step >>> 16;
+            int slot = (step >>> 8) & 0xFF;
+            out[slot] = switch ((step >>> 4) & 0xF) {
+                case KIND_U8 -> f[offset] & 0xFF;
+                case KIND_U16 -> ((f[offset] & 0xFF) << 8) | (f[offset + 1] & 0xFF);
+                default -> (f[offset] >> (step & 0xF)) & 1;
+            };
+        }
+    }
+}
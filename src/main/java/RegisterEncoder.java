@@ -0,0 +1,100 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Write command for one register of a {@link RegisterMap}:
+ * F7 02 FUNCTION ADDRESS 01 HI LO CRC_LO CRC_HI FD
+ * <p>
+ * The five header bytes and their CRC state are computed once; encoding a value
+ * only patches HI/LO, finishes the CRC over those two bytes and appends FD.
+ * The {@code encodeInto} variants allocate nothing.
+ */
+final class RegisterEncoder {
+
+    static final int FRAME_LENGTH = 10;
+
+    private static final int HEADER_LENGTH = 5;
+
+    private final byte[] header;
+    private final int headerCrc;
+    private final int onValue;
+
+    RegisterEncoder(RegisterMap.Register register) {
+        this.header = new byte[]{
+                (byte) 0xF7,
+                (byte) 0x02,
+                (byte) register.writeFunction(),
+                (byte) register.writeAddress(),
+                (byte) 0x01
+        };
+        this.headerCrc = Crc16Modbus.compute(header, HEADER_LENGTH);
+        this.onValue = register.writeOnValue();
+    }
+
+    byte[] encode(int raw) {
+        byte[] out = new byte[FRAME_LENGTH];
+        encodeInto(raw, out, 0);
+        return out;
+    }
+
+    byte[] encodeFlag(boolean on) {
+        return encode(flagValue(on));
+    }
+
+    int flagValue(boolean on) {
+        return on ? onValue : 0;
+    }
+
+    /** Writes the full command to {@code dst[off, off + FRAME_LENGTH)}; returns the length written. */
+    int encodeInto(int raw, byte[] dst, int off) {
+        checkRange(raw);
+
+        byte hi = (byte) (raw >> 8);
+        byte lo = (byte) raw;
+        int crc = Crc16Modbus.update(Crc16Modbus.update(headerCrc, hi), lo);
+
+        System.arraycopy(header, 0, dst, off, HEADER_LENGTH);
+        dst[off + 5] = hi;
+        dst[off + 6] = lo;
+        dst[off + 7] = (byte) crc;
+        dst[off + 8] = (byte) (crc >> 8);
+        dst[off + 9] = (byte) 0xFD;
+        return FRAME_LENGTH;
+    }
+
+    /** Relative put of the full command at the buffer's position. */
+    void encodeInto(int raw, ByteBuffer dst) {
+        checkRange(raw);
+
+        byte hi = (byte) (raw >> 8);
+        byte lo = (byte) raw;
+        int crc = Crc16Modbus.update(Crc16Modbus.update(headerCrc, hi), lo);
+
+        dst.put(header)
+                .put(hi)
+                .put(lo)
+                .put((byte) crc)
+                .put((byte) (crc >> 8))
+                .put((byte) 0xFD);
+    }
+
+    static byte[] withCrcAndEnd(byte[] payload) {
+        int crc = Crc16Modbus.compute(payload, payload.length);
+
+        byte crcLo = (byte) (crc & 0xFF);
+        byte crcHi = (byte) ((crc >> 8) & 0xFF);
+
+        byte[] out = new byte[payload.length + 3];
+        System.arraycopy(payload, 0, out, 0, payload.length);
+        out[payload.length] = crcLo;
+        out[payload.length + 1] = crcHi;
+        out[payload.length + 2] = (byte) 0xFD;
+
+        return out;
+    }
+
+    private static void checkRange(int raw) {
+        if (raw < 0 || raw > 0xFFFF) {
+            throw new ArithmeticException("Value out of u16 range: " + raw);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Declarative description of one device model's read-all frame and writable registers.
+ * <p>
+ * Loaded from {@code .regmap} text files (see {@code register-maps/peaktech-2ch.regmap})
+ * through {@link RegisterMaps}. Decoders and encoders are built once from the description,
+ * so adding a model is a data change, not a code change.
+ */
+public final class RegisterMap {
+
+    public record Register(
+            String name,
+            int offset,
+            int width,
+            int scale,
+            int bit,
+            int writeFunction,
+            int writeAddress,
+            int writeOnValue
+    ) {
+        public boolean isFlag() {
+            return bit >= 0;
+        }
+
+        public boolean isWritable() {
+            return writeAddress >= 0;
+        }
+    }
+
+    private final String model;
+    private final byte[] readAllPayload;
+    private final byte[] readAllFrame;
+    private final int frameLength;
+    private final List<Register> registers;
+    private final Map<String, RegisterEncoder> encoders = new HashMap<>();
+    private final RegisterEncoder[] fieldEncoders = new RegisterEncoder[Field.count()];
+
+    private RegisterMap(String model, byte[] readAllPayload, int frameLength, List<Register> registers) {
+        this.model = model;
+        this.readAllPayload = readAllPayload;
+        this.readAllFrame = RegisterEncoder.withCrcAndEnd(readAllPayload);
+        this.frameLength = frameLength;
+        this.registers = List.copyOf(registers);
+
+        for (var r : this.registers) {
+            if (r.isWritable()) encoders.put(r.name(), new RegisterEncoder(r));
+        }
+        for (var f : Field.values()) {
+            fieldEncoders[f.index()] = encoders.get(f.name());
+        }
+    }
+
+    public String model() {
+        return model;
+    }
+
+    public int frameLength() {
+        return frameLength;
+    }
+
+    public List<Register> registers() {
+        return registers;
+    }
+
+    /** Index of the register with that name, or -1 if this model does not have it. */
+    public int indexOf(String name) {
+        for (int i = 0; i < registers.size(); i++) {
+            if (registers.get(i).name().equals(name)) return i;
+        }
+        return -1;
+    }
+
+    RegisterEncoder encoder(String name) {
+        var e = encoders.get(name);
+        if (e == null) throw new IllegalArgumentException(model + " has no writable register " + name);
+        return e;
+    }
+
+    /** Encoder for a {@link Field} without a name lookup; hot-path variant of {@link #encoder(String)}. */
+    RegisterEncoder encoder(Field<?> field) {
+        var e = fieldEncoders[field.index()];
+        if (e == null) throw new IllegalArgumentException(model + " has no writable register " + field.name());
+        return e;
+    }
+
+    byte[] readAllCommand() {
+        return readAllFrame.clone();
+    }
+
+    /** Pre-computed read-all command, shared; callers must not modify it. */
+    byte[] readAllFrame() {
+        return readAllFrame;
+    }
+
+    /** Response to read-all: expected length and the request payload echoed as header. */
+    boolean isReadAllResponse(byte[] frame) {
+        if (frame.length != frameLength) return false;
+        for (int i = 1; i < readAllPayload.length; i++) {
+            if (frame[i] != readAllPayload[i]) return false;
+        }
+        return true;
+    }
+
+    // -------------------------
+    // Parsing
+    // -------------------------
+
+    static RegisterMap parse(String source, BufferedReader in) throws IOException {
+        String model = null;
+        byte[] readAll = null;
+        int frameLength = -1;
+        var registers = new ArrayList<Register>();
+
+        String line;
+        int lineNo = 0;
+        while ((line = in.readLine()) != null) {
+            lineNo++;
+            int hash = line.indexOf('#');
+            if (hash >= 0) line = line.substring(0, hash);
+            line = line.strip();
+            if (line.isEmpty()) continue;
+
+            int eq = line.indexOf('=');
+            if (eq > 0 && !line.substring(0, eq).strip().contains(" ")) {
+                String key = line.substring(0, eq).strip();
+                String value = line.substring(eq + 1).strip();
+                switch (key) {
+                    case "model" -> model = value;
+                    case "read-all" -> readAll = HexFormat.of().parseHex(value.replace(" ", ""));
+                    case "frame-length" -> frameLength = Integer.parseInt(value);
+                    default -> throw error(source, lineNo, "unknown key " + key);
+                }
+                continue;
+            }
+
+            registers.add(parseRegister(source, lineNo, line.split("\\s+")));
+        }
+
+        if (model == null || readAll == null || frameLength < 6) {
+            throw new IllegalArgumentException(source + ": model, read-all and frame-length are required");
+        }
+        if (registers.size() > Long.SIZE) {
+            throw new IllegalArgumentException(source + ": at most " + Long.SIZE + " registers supported");
+        }
+        for (var r : registers) {
+            if (r.offset() + r.width() > frameLength - 3) {
+                throw new IllegalArgumentException(source + ": " + r.name() + " overlaps CRC/end byte");
+            }
+        }
+
+        return new RegisterMap(model, readAll, frameLength, registers);
+    }
+
+    private static Register parseRegister(String source, int lineNo, String[] cols) {
+        if (cols.length != 6) throw error(source, lineNo, "expected 6 columns");
+
+        int width = Integer.parseInt(cols[2]);
+        if (width != 1 && width != 2) throw error(source, lineNo, "width must be 1 or 2");
+
+        int bit = cols[4].equals("-") ? -1 : Integer.parseInt(cols[4]);
+        if (bit >= 0 && width != 1) throw error(source, lineNo, "flags must have width 1");
+        if (bit > 7) throw error(source, lineNo, "bit must be 0..7");
+
+        int function = -1;
+        int address = -1;
+        int onValue = 1;
+        if (!cols[5].equals("-")) {
+            String write = cols[5];
+            int eq = write.indexOf('=');
+            if (eq >= 0) {
+                onValue = Integer.parseInt(write.substring(eq + 1), 16);
+                write = write.substring(0, eq);
+            }
+            int colon = write.indexOf(':');
+            if (colon < 0) throw error(source, lineNo, "write must be FUNCTION:ADDRESS");
+            function = Integer.parseInt(write.substring(0, colon), 16);
+            address = Integer.parseInt(write.substring(colon + 1), 16);
+        }
+
+        return new Register(
+                cols[0],
+                Integer.parseInt(cols[1]),
+                width,
+                Integer.parseInt(cols[3]),
+                bit,
+                function,
+                address,
+                onValue
+        );
+    }
+
+    private static IllegalArgumentException error(String source, int lineNo, String msg) {
+        return new IllegalArgumentException(source + ":" + lineNo + ": " + msg);
+    }
+
+    @Override
+    public String toString() {
+        return model;
+    }
+}
@@ -0,0 +1,11 @@
+import java.util.Optional;
+
+/**
+ * Service interface for register map sources, discovered via {@link java.util.ServiceLoader}.
+ * The built-in {@link ResourceRegisterMapProvider} covers {@code .regmap} files; implement this
+ * only to pull maps from somewhere else (a database, a device-identification query, ...).
+ */
+public interface RegisterMapProvider {
+
+    Optional<RegisterMap> find(String model);
+}
@@ -0,0 +1,28 @@
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class RegisterMaps {
+
+    public static final String DEFAULT_MODEL = "peaktech-2ch";
+
+    private static final Map<String, RegisterMap> CACHE = new ConcurrentHashMap<>();
+
+    private RegisterMaps() {}
+
+    public static RegisterMap forModel(String model) {
+        return CACHE.computeIfAbsent(model, RegisterMaps::load);
+    }
+
+    public static RegisterMap defaultMap() {
+        return forModel(DEFAULT_MODEL);
+    }
+
+    private static RegisterMap load(String model) {
+        for (var provider : ServiceLoader.load(RegisterMapProvider.class)) {
+            var map = provider.find(model);
+            if (map.isPresent()) return map.get();
+        }
+        throw new IllegalArgumentException("No register map for model: " + model);
+    }
+}
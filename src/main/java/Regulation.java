@@ -0,0 +1,152 @@
+import java.math.BigDecimal;
+
+/**
+ * Immutable definition of a software control loop for {@link RegulationLoop}.
+ * <p>
+ * The supply only regulates CV/CC itself; these modes close an outer loop over the
+ * measured values and move one setpoint (the actuator) of the same channel:
+ * <ul>
+ * <li>{@link #constantPower}: keeps V*I at a wattage.</li>
+ * <li>{@link #resistance}: behaves like a source of {@code V0} behind a series
+ *     resistance, i.e. drives the output voltage to {@code V0 - R*I}.</li>
+ * </ul>
+ * The default gains are conservative starting points for a resistive load; tune with
+ * {@link #gains}. Actuator limits and slew rate are in volts or amps, whichever the
+ * actuator is.
+ */
+public final class Regulation {
+
+    public enum Actuator {
+        VOLTAGE,
+        CURRENT
+    }
+
+    enum Kind {
+        POWER,
+        RESISTANCE
+    }
+
+    final Kind kind;
+    final int channel;
+    final double target;
+    final double openCircuitVolts;
+    final Actuator actuator;
+    final double kp;
+    final double ki;
+    final double kd;
+    final double min;
+    final double max;
+    final double ratePerSecond;
+
+    private Regulation(
+            Kind kind, int channel, double target, double openCircuitVolts, Actuator actuator,
+            double kp, double ki, double kd, double min, double max, double ratePerSecond
+    ) {
+        this.kind = kind;
+        this.channel = channel;
+        this.target = target;
+        this.openCircuitVolts = openCircuitVolts;
+        this.actuator = actuator;
+        this.kp = kp;
+        this.ki = ki;
+        this.kd = kd;
+        this.min = min;
+        this.max = max;
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    // -------------------------
+    // Factories
+    // -------------------------
+
+    /** Holds {@code watts} by moving the voltage setpoint within 0..{@code maxVolts}. */
+    public static Regulation constantPower(int channel, BigDecimal watts, BigDecimal maxVolts) {
+        requireChannel(channel);
+        requirePositive(watts, "watts");
+        double max = requirePositive(maxVolts, "maxVolts");
+        return new Regulation(Kind.POWER, channel, watts.doubleValue(), 0, Actuator.VOLTAGE,
+                0.05, 0.5, 0, 0, max, max);
+    }
+
+    /** Emulates {@code openCircuitVolts} behind {@code ohms} by moving the voltage setpoint. */
+    public static Regulation resistance(int channel, BigDecimal openCircuitVolts, BigDecimal ohms) {
+        requireChannel(channel);
+        double v0 = requirePositive(openCircuitVolts, "openCircuitVolts");
+        if (ohms.signum() < 0) throw new IllegalArgumentException("ohms must not be negative");
+        return new Regulation(Kind.RESISTANCE, channel, ohms.doubleValue(), v0, Actuator.VOLTAGE,
+                0.3, 3.0, 0, 0, v0, v0);
+    }
+
+    // -------------------------
+    // Modifiers
+    // -------------------------
+
+    /** Moves the current setpoint instead (supply in CC), within 0..{@code maxAmps}. */
+    public Regulation actuatingCurrent(BigDecimal maxAmps) {
+        double max = requirePositive(maxAmps, "maxAmps");
+        return new Regulation(kind, channel, target, openCircuitVolts, Actuator.CURRENT,
+                kp / 5, ki / 5, kd / 5, 0, max, max);
+    }
+
+    /** Proportional, integral (per second) and derivative (seconds) gain, actuator units per unit of error. */
+    public Regulation gains(double kp, double ki, double kd) {
+        if (kp < 0 || ki < 0 || kd < 0) throw new IllegalArgumentException("gains must not be negative");
+        return new Regulation(kind, channel, target, openCircuitVolts, actuator, kp, ki, kd, min, max, ratePerSecond);
+    }
+
+    public Regulation limits(BigDecimal min, BigDecimal max) {
+        if (min.signum() < 0 || min.compareTo(max) >= 0) throw new IllegalArgumentException("need 0 <= min < max");
+        return new Regulation(kind, channel, target, openCircuitVolts, actuator, kp, ki, kd,
+                min.doubleValue(), max.doubleValue(), ratePerSecond);
+    }
+
+    /** Largest setpoint change per second; the default is the full range in one second. */
+    public Regulation rateLimit(BigDecimal perSecond) {
+        double rate = requirePositive(perSecond, "perSecond");
+        return new Regulation(kind, channel, target, openCircuitVolts, actuator, kp, ki, kd, min, max, rate);
+    }
+
+    // -------------------------
+    // Loop terms
+    // -------------------------
+
+    /** What the loop holds at {@link #reference}: watts, or volts for the emulated source. */
+    double measured(double volts, double amps) {
+        return kind == Kind.POWER ? volts * amps : volts;
+    }
+
+    double reference(double volts, double amps) {
+        return kind == Kind.POWER ? target : Math.max(0, openCircuitVolts - target * amps);
+    }
+
+    Field<BigDecimal> voltage() {
+        return channel == 1 ? Field.CH1_V_MEAS : Field.CH2_V_MEAS;
+    }
+
+    Field<BigDecimal> current() {
+        return channel == 1 ? Field.CH1_I_MEAS : Field.CH2_I_MEAS;
+    }
+
+    /** The setpoint the loop writes. */
+    Field<BigDecimal> setpoint() {
+        return actuator == Actuator.VOLTAGE
+                ? (channel == 1 ? Field.CH1_V_SET : Field.CH2_V_SET)
+                : (channel == 1 ? Field.CH1_I_SET : Field.CH2_I_SET);
+    }
+
+    private static void requireChannel(int channel) {
+        if (channel != 1 && channel != 2) throw new IllegalArgumentException("channel must be 1 or 2");
+    }
+
+    private static double requirePositive(BigDecimal value, String name) {
+        if (value.signum() <= 0) throw new IllegalArgumentException(name + " must be positive");
+        return value.doubleValue();
+    }
+
+    @Override
+    public String toString() {
+        return kind == Kind.POWER
+                ? "CH" + channel + " constant power " + target + " W via " + actuator
+                : "CH" + channel + " " + openCircuitVolts + " V behind " + target + " ohm via " + actuator;
+    }
+}
@@ -0,0 +1,210 @@
+import java.math.BigDecimal;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Runs a {@link Regulation} on the parser thread, once per fresh read-all frame.
+ * <p>
+ * Each frame: PID on the error (derivative on the measurement, so a target change
+ * does not kick), then slew-rate and range limits on the setpoint. The integrator only
+ * moves while the output is unlimited or the error pulls it back (anti-windup). The
+ * setpoint is written only when its raw value changes, through the session's
+ * {@code SETPOINT} lane: that goes out ahead of the next poll, and a write still
+ * queued is replaced by the newer one. So the device sees each correction within
+ * one poll cycle of the data it was computed from.
+ * <p>
+ * With the output off, the loop pauses and resumes bumplessly from the setpoint then
+ * in effect. A stale session pauses the integrator and derivative until fresh data.
+ * Holds {@link PollDemand#FULL} while running.
+ */
+public final class RegulationLoop implements FrameStage, AutoCloseable {
+
+    /**
+     * @param rmsError root mean square of the error since start or {@link #resetStats()}
+     * @param saturated the last output hit the range or slew limit
+     */
+    public record Status(
+            long updates,
+            long writes,
+            double reference,
+            double measured,
+            double error,
+            double rmsError,
+            double output,
+            boolean saturated,
+            boolean paused
+    ) {}
+
+    public static RegulationLoop start(DeviceSession session, Regulation regulation) {
+        var loop = new RegulationLoop(regulation, session::setRaw);
+        loop.session = session;
+        loop.demand = session.demand(PollDemand.FULL);
+        session.addStage(loop);
+        return loop;
+    }
+
+    private final Regulation regulation;
+    private final ObjIntConsumer<Field<BigDecimal>> write;
+    private final Field<BigDecimal> setpoint;
+    private final double unitsPerRaw;
+    private final double voltsPerRaw;
+    private final double ampsPerRaw;
+    private final long fieldMask;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private DeviceSession session;
+    private DemandToken demand;
+
+    // Parser thread only
+    private boolean primed;
+    private double output;
+    private double bias;
+    private double integral;
+    private double previousMeasured;
+    private long lastNanos;
+    private int lastRaw = -1;
+    private double squaredErrorSum;
+
+    private volatile boolean gap;
+    private volatile boolean resetRequested;
+
+    // Published for status(); racy reads intended
+    private volatile long updates;
+    private volatile long writes;
+    private volatile double reference;
+    private volatile double measured;
+    private volatile double error;
+    private volatile double rmsError;
+    private volatile double published;
+    private volatile boolean saturated;
+    private volatile boolean paused = true;
+
+    RegulationLoop(Regulation regulation, ObjIntConsumer<Field<BigDecimal>> write) {
+        this.regulation = regulation;
+        this.write = write;
+        this.setpoint = regulation.setpoint();
+        this.unitsPerRaw = Math.pow(10, -setpoint.scale());
+        this.voltsPerRaw = Math.pow(10, -regulation.voltage().scale());
+        this.ampsPerRaw = Math.pow(10, -regulation.current().scale());
+        this.fieldMask = FrameDecoder.maskOf(
+                regulation.voltage(), regulation.current(), setpoint, Field.OUTPUT);
+    }
+
+    // -------------------------
+    // Public API
+    // -------------------------
+
+    public Regulation regulation() {
+        return regulation;
+    }
+
+    public Status status() {
+        return new Status(updates, writes, reference, measured, error, rmsError, published, saturated, paused);
+    }
+
+    /** Frame complete to corrected setpoint queued, per update. */
+    public LatencyHistogram latency() {
+        return latency;
+    }
+
+    /** Restarts the RMS error; applied on the parser thread with the next frame. */
+    public void resetStats() {
+        resetRequested = true;
+    }
+
+    /** Stops regulating; the last written setpoint stays in effect. */
+    @Override
+    public void close() {
+        if (session == null) return;
+        session.removeStage(this);
+        demand.close();
+        session = null;
+    }
+
+    // -------------------------
+    // FrameStage
+    // -------------------------
+
+    @Override
+    public void onFrame(FrameDecoder frame, long frameNanos) {
+        double volts = frame.raw(regulation.voltage()) * voltsPerRaw;
+        double amps = frame.raw(regulation.current()) * ampsPerRaw;
+        double pv = regulation.measured(volts, amps);
+        double ref = regulation.reference(volts, amps);
+        double e = ref - pv;
+        reference = ref;
+        measured = pv;
+        error = e;
+
+        if (frame.raw(Field.OUTPUT) == 0) {
+            paused = true;
+            primed = false;
+            return;
+        }
+
+        boolean afterGap = gap;
+        if (afterGap) gap = false;
+
+        if (!primed) {
+            // Bumpless start from whatever setpoint is in effect
+            output = frame.raw(setpoint) * unitsPerRaw;
+            bias = output;
+            integral = 0;
+            lastRaw = frame.raw(setpoint);
+            primed = true;
+            paused = false;
+            afterGap = true;
+        }
+        if (afterGap) {
+            previousMeasured = pv;
+            lastNanos = frameNanos;
+            return;
+        }
+
+        double dt = (frameNanos - lastNanos) / 1e9;
+        lastNanos = frameNanos;
+        if (dt <= 0) return;
+
+        double nextIntegral = integral + regulation.ki * e * dt;
+        double derivative = -regulation.kd * (pv - previousMeasured) / dt;
+        previousMeasured = pv;
+        double wanted = bias + regulation.kp * e + nextIntegral + derivative;
+
+        double step = regulation.ratePerSecond * dt;
+        double limited = Math.clamp(wanted, output - step, output + step);
+        limited = Math.clamp(limited, regulation.min, regulation.max);
+
+        boolean limitedNow = limited != wanted;
+        if (!limitedNow || Math.signum(e) != Math.signum(wanted - limited)) integral = nextIntegral;
+        output = limited;
+
+        int raw = Math.clamp(Math.round(limited / unitsPerRaw), 0, 0xFFFF);
+        if (raw != lastRaw) {
+            write.accept(setpoint, raw);
+            lastRaw = raw;
+            writes++;
+        }
+        latency.record(System.nanoTime() - frameNanos);
+
+        if (resetRequested) {
+            resetRequested = false;
+            squaredErrorSum = 0;
+            updates = 0;
+        }
+        squaredErrorSum += e * e;
+        long n = updates + 1;
+        updates = n;
+        rmsError = Math.sqrt(squaredErrorSum / n);
+        published = limited;
+        saturated = limitedNow;
+    }
+
+    @Override
+    public void onStale() {
+        gap = true;
+    }
+
+    @Override
+    public long fieldMask() {
+        return fieldMask;
+    }
+}
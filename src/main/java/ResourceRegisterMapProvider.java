@@ -0,0 +1,43 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Looks up {@code <model>.regmap} first in the directory given by the
+ * {@code lab.registerMaps.dir} system property, then on the classpath under {@code register-maps/}.
+ */
+public final class ResourceRegisterMapProvider implements RegisterMapProvider {
+
+    private static final String DIR_PROPERTY = "lab.registerMaps.dir";
+
+    @Override
+    public Optional<RegisterMap> find(String model) {
+        String fileName = model + ".regmap";
+
+        try {
+            var dir = System.getProperty(DIR_PROPERTY);
+            if (dir != null) {
+                var file = Path.of(dir, fileName);
+                if (Files.isRegularFile(file)) {
+                    try (var in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                        return Optional.of(RegisterMap.parse(file.toString(), in));
+                    }
+                }
+            }
+
+            var stream = ResourceRegisterMapProvider.class.getResourceAsStream("/register-maps/" + fileName);
+            if (stream == null) return Optional.empty();
+
+            try (var in = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+                return Optional.of(RegisterMap.parse("register-maps/" + fileName, in));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read register map " + fileName, e);
+        }
+    }
+}
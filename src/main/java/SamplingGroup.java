@@ -0,0 +1,171 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Polls several sessions on one shared clock.
+ * <p>
+ * Each tick sends read-all to every member back to back, tags the expected
+ * response with the tick id and publishes one {@link GroupSnapshot} when all
+ * members have answered or the deadline has passed, whichever comes first.
+ * Members stop their own poll loops while they belong to a group, but each holds
+ * {@link PollDemand#FULL} so its session keeps tracking freshness.
+ * <p>
+ * Only the answer to a read-all that left the port after the tick began counts as
+ * that tick's sample, so the answer to an earlier request (a late reply, or the
+ * read-all that ends a transaction) is never reported one period late.
+ * <p>
+ * {@code onSnapshot} runs on the group clock or on a member's parser thread and
+ * must return quickly.
+ */
+public final class SamplingGroup implements AutoCloseable {
+
+    public static SamplingGroup start(
+            List<DeviceSession> sessions,
+            Duration period,
+            Duration deadline,
+            Consumer<GroupSnapshot> onSnapshot
+    ) {
+        if (deadline.compareTo(period) > 0) {
+            throw new IllegalArgumentException("deadline must not exceed the period");
+        }
+        var group = new SamplingGroup(sessions, deadline.toNanos(), onSnapshot);
+        group.start(period.toNanos());
+        return group;
+    }
+
+    private final Member[] members;
+    private final long deadlineNanos;
+    private final Consumer<GroupSnapshot> onSnapshot;
+    private final ScheduledExecutorService clock = Executors.newSingleThreadScheduledExecutor(r -> {
+        var t = new Thread(r, "sampling-group-clock");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Current tick, guarded by this
+    private long tickId = -1;
+    private long tickNanos;
+    private DeviceSnapshot[] responses;
+    private long[] responseNanos;
+    private int outstanding;
+    private boolean published = true;
+
+    private SamplingGroup(List<DeviceSession> sessions, long deadlineNanos, Consumer<GroupSnapshot> onSnapshot) {
+        this.deadlineNanos = deadlineNanos;
+        this.onSnapshot = onSnapshot;
+        this.members = new Member[sessions.size()];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = new Member(i, sessions.get(i));
+        }
+    }
+
+    private void start(long periodNanos) {
+        for (var m : members) {
+            m.session.setExternalPolling(true);
+            m.demand = m.session.demand(PollDemand.FULL);
+            m.session.addStage(m);
+        }
+        clock.scheduleAtFixedRate(this::tick, 0, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void close() {
+        clock.shutdownNow();
+        for (var m : members) {
+            m.session.removeStage(m);
+            m.session.setExternalPolling(false);
+            m.demand.close();
+        }
+    }
+
+    // -------------------------
+    // Clock
+    // -------------------------
+
+    private void tick() {
+        long id;
+        synchronized (this) {
+            if (!published) publish();
+
+            id = ++tickId;
+            tickNanos = System.nanoTime();
+            responses = new DeviceSnapshot[members.length];
+            responseNanos = new long[members.length];
+            Arrays.fill(responseNanos, -1);
+            outstanding = members.length;
+            published = false;
+        }
+
+        for (var m : members) {
+            m.requestedNanos = System.nanoTime();
+            m.pendingTick = id;
+            if (m.session.pollNow() < 0) {
+                m.pendingTick = -1;
+                synchronized (this) {
+                    if (tickId == id) countDown();
+                }
+            }
+        }
+
+        clock.schedule(() -> expire(id), deadlineNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private synchronized void expire(long id) {
+        if (tickId == id && !published) publish();
+    }
+
+    private synchronized void onResponse(int index, long id, DeviceSnapshot snapshot, long frameNanos) {
+        if (id != tickId || published) return;
+        responses[index] = snapshot;
+        responseNanos[index] = frameNanos;
+        countDown();
+    }
+
+    private void countDown() {
+        if (--outstanding == 0) publish();
+    }
+
+    private void publish() {
+        published = true;
+        boolean complete = true;
+        var list = new ArrayList<DeviceSnapshot>(responses.length);
+        for (var r : responses) {
+            complete &= r != null;
+            list.add(r);
+        }
+        onSnapshot.accept(new GroupSnapshot(tickId, tickNanos, list, responseNanos, complete));
+    }
+
+    // -------------------------
+    // Per member response hook
+    // -------------------------
+
+    private final class Member implements FrameStage {
+
+        final int index;
+        final DeviceSession session;
+        volatile long pendingTick = -1;
+        volatile long requestedNanos;
+        DemandToken demand;
+
+        Member(int index, DeviceSession session) {
+            this.index = index;
+            this.session = session;
+        }
+
+        @Override
+        public void onFrame(FrameDecoder frame, long frameNanos) {
+            long id = pendingTick;
+            if (id < 0) return;
+            if (session.frameRequestNanos() < requestedNanos) return;
+            pendingTick = -1;
+            onResponse(index, id, frame.snapshot(), frameNanos);
+        }
+    }
+}
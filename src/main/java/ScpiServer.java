@@ -0,0 +1,447 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SCPI-like line protocol over TCP for test automation, on one {@link DeviceSession}.
+ * <pre>
+ * *IDN?                       LabDevice,&lt;model&gt;,&lt;port&gt;,0
+ * MEAS:VOLT? 2                measured voltage of channel 2 (channel defaults to 1)
+ * MEAS:CURR? 1
+ * VOLT 1,12.00   VOLT? 1      setpoint; likewise CURR
+ * OUTP ON|OFF    OUTP?        1 or 0
+ * MODE IND|SER|PAR   MODE?
+ * SYST:ERR?                   oldest queued error, or 0,"No error"
+ * </pre>
+ * Keywords take the usual short or long form, case-insensitively. Setting commands
+ * answer nothing; their errors are queued per client for {@code SYST:ERR?}. Every query
+ * answers exactly one line, the error itself if it failed, so a client never hangs.
+ * <p>
+ * Queries are answered from {@link DeviceSession#readLatest} on the selector thread:
+ * no device round trip, no lock. Without a frame, or with one older than
+ * {@value #MAX_FRAME_AGE_MILLIS} ms (device unplugged or silent), they answer
+ * {@code -230,"Data stale"}. Lines are handled in arrival order, any number per
+ * packet (pipelining); all answers to one read go out in one write. A client that does
+ * not read its answers stops being read until it does. Any number of clients.
+ * <p>
+ * Listens on loopback only. Started by {@link MainWindow} for the open device when
+ * {@code lab.scpi.port} is set.
+ */
+public final class ScpiServer implements AutoCloseable {
+
+    static final String PORT_PROPERTY = "lab.scpi.port";
+
+    private static final int MAX_LINE = 256;
+    private static final int MAX_ERRORS = 16;
+    // Keep-alive polling alone reads every 2 s
+    private static final long MAX_FRAME_AGE_MILLIS = 5_000;
+    private static final long MAX_FRAME_AGE_NANOS = MAX_FRAME_AGE_MILLIS * 1_000_000;
+    private static final long FIRST_FRAME_WAIT_MILLIS = 1_000;
+
+    private enum Header {
+        IDN("*IDN"),
+        ERROR("SYSTem:ERRor"),
+        MEAS_VOLT("MEASure:VOLTage"),
+        MEAS_CURR("MEASure:CURRent"),
+        VOLT("VOLTage"),
+        CURR("CURRent"),
+        OUTP("OUTPut"),
+        MODE("MODE");
+
+        final String pattern;
+
+        Header(String pattern) {
+            this.pattern = pattern;
+        }
+    }
+
+    /** Every accepted spelling (each node short or long, upper case) -> header. */
+    private static final Map<String, Header> HEADERS = new HashMap<>();
+
+    static {
+        for (var h : Header.values()) addSpellings(h, h.pattern.split(":"), 0, "");
+    }
+
+    private static void addSpellings(Header h, String[] nodes, int i, String prefix) {
+        if (i == nodes.length) {
+            HEADERS.put(prefix, h);
+            return;
+        }
+        String node = nodes[i];
+        int shortLen = 0;
+        while (shortLen < node.length() && !Character.isLowerCase(node.charAt(shortLen))) shortLen++;
+        String sep = i == 0 ? "" : ":";
+        addSpellings(h, nodes, i + 1, prefix + sep + node.substring(0, shortLen));
+        if (shortLen < node.length()) addSpellings(h, nodes, i + 1, prefix + sep + node.toUpperCase(Locale.ROOT));
+    }
+
+    public static ScpiServer start(DeviceSession session, int port) throws IOException {
+        var server = new ScpiServer(session, port);
+        server.thread.start();
+        return server;
+    }
+
+    private final DeviceSession session;
+    private final Selector selector;
+    private final ServerSocketChannel listener;
+    private final Thread thread;
+    private final byte[] identity;
+
+    // Selector thread only
+    private final int[] latest = new int[Field.count()];
+    private final byte[] line = new byte[MAX_LINE];
+
+    private volatile boolean closed;
+
+    private ScpiServer(DeviceSession session, int port) throws IOException {
+        this.session = session;
+        this.identity = ("LabDevice," + session.map().model() + "," + session.comPort() + ",0\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        this.selector = Selector.open();
+        try {
+            this.listener = ServerSocketChannel.open();
+            listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            listener.configureBlocking(false);
+            listener.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            selector.close();
+            throw e;
+        }
+        this.thread = new Thread(this::selectLoop, "scpi-server-" + port);
+        thread.setDaemon(true);
+    }
+
+    /** Port actually bound (useful when started on port 0). */
+    public int port() {
+        return listener.socket().getLocalPort();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // -------------------------
+    // Selector loop
+    // -------------------------
+
+    private void selectLoop() {
+        awaitFirstFrame();
+        try {
+            while (!closed) {
+                selector.select();
+                for (var it = selector.selectedKeys().iterator(); it.hasNext(); ) {
+                    var key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+                    try {
+                        if (key.isAcceptable()) accept();
+                        else if (key.isWritable()) drain(key);
+                        else if (key.isReadable()) read(key);
+                    } catch (IOException e) {
+                        disconnect(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            IO.println("SCPI server stopped: " + e.getMessage());
+        } finally {
+            for (var key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException ignored) {
+                    // shutting down
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // shutting down
+            }
+        }
+    }
+
+    /**
+     * Starts snapshot publication (it begins with the first read) and waits up to
+     * {@value #FIRST_FRAME_WAIT_MILLIS} ms for a frame, so the first query after startup
+     * is not answered as stale. Clients connecting meanwhile wait in the backlog.
+     */
+    private void awaitFirstFrame() {
+        long deadline = System.nanoTime() + FIRST_FRAME_WAIT_MILLIS * 1_000_000;
+        while (!closed && session.readLatest(latest) == 0 && System.nanoTime() < deadline) {
+            session.pollNow();
+            LockSupport.parkNanos(10_000_000);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel ch;
+        while ((ch = listener.accept()) != null) {
+            ch.configureBlocking(false);
+            ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            ch.register(selector, SelectionKey.OP_READ, new Client());
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        var client = (Client) key.attachment();
+        var ch = (SocketChannel) key.channel();
+
+        if (ch.read(client.in) < 0) {
+            disconnect(key);
+            return;
+        }
+
+        // Every complete line, in order; the answers collect in client.out
+        client.in.flip();
+        int start = client.in.position();
+        for (int i = start; i < client.in.limit(); i++) {
+            if (client.in.get(i) != '\n') continue;
+            handleLine(client, start, i);
+            start = i + 1;
+        }
+        client.in.position(start);
+        client.in.compact();
+
+        if (!client.in.hasRemaining()) {
+            // A line longer than the buffer: drop it
+            client.in.clear();
+            client.error(-223, "Too much data");
+        }
+
+        if (client.out.position() > 0) drain(key);
+    }
+
+    /** Writes pending answers; while some remain, waits for writability instead of reading. */
+    private void drain(SelectionKey key) throws IOException {
+        var client = (Client) key.attachment();
+        client.out.flip();
+        ((SocketChannel) key.channel()).write(client.out);
+        client.out.compact();
+        key.interestOps(client.out.position() > 0 ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    private void disconnect(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // already gone
+        }
+    }
+
+    // -------------------------
+    // Commands
+    // -------------------------
+
+    private void handleLine(Client client, int from, int to) {
+        int len = 0;
+        for (int i = from; i < to; i++) {
+            byte b = client.in.get(i);
+            if (b != '\r' && len < line.length) line[len++] = b;
+        }
+
+        // Header up to the first blank, then the arguments
+        int p = 0;
+        while (p < len && line[p] == ' ') p++;
+        if (p < len && line[p] == ':') p++;
+        int headerStart = p;
+        while (p < len && line[p] != ' ') p++;
+        int headerEnd = p;
+        if (headerEnd == headerStart) return;
+
+        boolean query = line[headerEnd - 1] == '?';
+        String name = new String(line, headerStart, headerEnd - headerStart - (query ? 1 : 0), StandardCharsets.US_ASCII)
+                .toUpperCase(Locale.ROOT);
+        String args = new String(line, headerEnd, len - headerEnd, StandardCharsets.US_ASCII).strip();
+
+        var header = HEADERS.get(name);
+        ScpiError error;
+        try {
+            if (header == null) throw new ScpiError(-113, "Undefined header");
+            if (query) query(client, header, args);
+            else command(client, header, args);
+            return;
+        } catch (ScpiError e) {
+            error = e;
+        } catch (RuntimeException e) {
+            // e.g. a rejected encode in the session; must not end the loop for every client
+            error = new ScpiError(-300, "Device-specific error");
+        }
+        if (query) error.writeTo(client.out());
+        else client.error(error.code, error.getMessage());
+    }
+
+    private void query(Client client, Header header, String args) {
+        switch (header) {
+            case IDN -> client.out(identity.length).put(identity);
+            case ERROR -> {
+                var error = client.errors.poll();
+                (error != null ? error : new ScpiError(0, "No error")).writeTo(client.out());
+            }
+            case MEAS_VOLT -> answer(client, channel(args) == 1 ? Field.CH1_V_MEAS : Field.CH2_V_MEAS);
+            case MEAS_CURR -> answer(client, channel(args) == 1 ? Field.CH1_I_MEAS : Field.CH2_I_MEAS);
+            case VOLT -> answer(client, channel(args) == 1 ? Field.CH1_V_SET : Field.CH2_V_SET);
+            case CURR -> answer(client, channel(args) == 1 ? Field.CH1_I_SET : Field.CH2_I_SET);
+            case OUTP -> answer(client, Field.OUTPUT);
+            case MODE -> {
+                requireFrame();
+                String mode = latest[Field.SERIAL.index()] != 0 ? "SER\n"
+                        : latest[Field.PARALLEL.index()] != 0 ? "PAR\n" : "IND\n";
+                client.out(4).put(mode.getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+    }
+
+    private void command(Client client, Header header, String args) {
+        switch (header) {
+            case VOLT, CURR -> {
+                int comma = args.indexOf(',');
+                if (comma < 0) throw new ScpiError(-109, "Missing parameter");
+                int ch = channel(args.substring(0, comma));
+                Field<BigDecimal> field = header == Header.VOLT
+                        ? (ch == 1 ? Field.CH1_V_SET : Field.CH2_V_SET)
+                        : (ch == 1 ? Field.CH1_I_SET : Field.CH2_I_SET);
+                session.setRaw(field, setpoint(field, args.substring(comma + 1).strip()));
+            }
+            case OUTP -> session.setOutput(bool(args));
+            case MODE -> {
+                switch (args.toUpperCase(Locale.ROOT)) {
+                    case "SER", "SERIAL" -> session.setSerial(true);
+                    case "PAR", "PARALLEL" -> session.setParallel(true);
+                    case "IND", "INDEPENDENT" -> session.setSerial(false); // shared register: clears both
+                    default -> throw new ScpiError(-224, "Illegal parameter value");
+                }
+            }
+            default -> throw new ScpiError(-113, "Undefined header");
+        }
+    }
+
+    /** Raw value of {@code field} from the latest frame, formatted with its scale. */
+    private void answer(Client client, Field<?> field) {
+        requireFrame();
+        putDecimal(client.out(16), latest[field.index()], field.scale());
+    }
+
+    private void requireFrame() {
+        if (session.readLatest(latest) == 0
+                || System.nanoTime() - session.latestFrameNanos() > MAX_FRAME_AGE_NANOS) {
+            throw new ScpiError(-230, "Data stale");
+        }
+    }
+
+    private static int channel(String arg) {
+        String a = arg.strip();
+        if (a.isEmpty() || a.equals("1") || a.equals("(@1)")) return 1;
+        if (a.equals("2") || a.equals("(@2)")) return 2;
+        throw new ScpiError(-224, "Illegal parameter value");
+    }
+
+    private static int setpoint(Field<BigDecimal> field, String arg) {
+        int raw;
+        try {
+            raw = DeviceCommands.toRaw(field, new BigDecimal(arg));
+        } catch (NumberFormatException e) {
+            throw new ScpiError(-121, "Invalid character in number");
+        } catch (ArithmeticException e) {
+            throw new ScpiError(-222, "Data out of range");
+        }
+        if (raw < 0 || raw > 0xFFFF) throw new ScpiError(-222, "Data out of range");
+        return raw;
+    }
+
+    private static boolean bool(String arg) {
+        return switch (arg.toUpperCase(Locale.ROOT)) {
+            case "ON", "1" -> true;
+            case "OFF", "0" -> false;
+            default -> throw new ScpiError(-224, "Illegal parameter value");
+        };
+    }
+
+    /** {@code raw} with {@code scale} decimals and a newline, without allocating. */
+    private static void putDecimal(ByteBuffer out, int raw, int scale) {
+        int digits = 1;
+        for (int v = raw / 10; v != 0; v /= 10) digits++;
+        digits = Math.max(digits, scale + 1);
+
+        int end = out.position() + digits + (scale > 0 ? 1 : 0);
+        int pos = end;
+        int v = raw;
+        for (int i = 0; i < digits; i++) {
+            if (i == scale && scale > 0) out.put(--pos, (byte) '.');
+            out.put(--pos, (byte) ('0' + v % 10));
+            v /= 10;
+        }
+        out.position(end);
+        out.put((byte) '\n');
+    }
+
+    // -------------------------
+    // Per-client state
+    // -------------------------
+
+    private static final class Client {
+
+        final ByteBuffer in = ByteBuffer.allocate(4 * 1024);
+        ByteBuffer out = ByteBuffer.allocate(4 * 1024);
+        final ArrayDeque<ScpiError> errors = new ArrayDeque<>();
+
+        /** The output buffer, grown so that at least {@code n} more bytes fit. */
+        ByteBuffer out(int n) {
+            if (out.remaining() < n) {
+                var bigger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + n));
+                out.flip();
+                bigger.put(out);
+                out = bigger;
+            }
+            return out;
+        }
+
+        ByteBuffer out() {
+            return out(64);
+        }
+
+        void error(int code, String message) {
+            if (errors.size() == MAX_ERRORS) {
+                errors.removeLast();
+                errors.add(new ScpiError(-350, "Queue overflow"));
+                return;
+            }
+            errors.add(new ScpiError(code, message));
+        }
+    }
+
+    /** SCPI error number and message; thrown out of command handling, queued or answered. */
+    private static final class ScpiError extends RuntimeException {
+
+        final int code;
+
+        ScpiError(int code, String message) {
+            super(message, null, false, false);
+            this.code = code;
+        }
+
+        void writeTo(ByteBuffer out) {
+            out.put((code + ",\"" + getMessage() + "\"\n").getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+}
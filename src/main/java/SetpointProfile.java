@@ -0,0 +1,283 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Named bench setup: both channels' setpoints plus output and serial/parallel mode.
+ * <p>
+ * Stored as {@code <name>.profile} in the directory given by {@code lab.profiles.dir},
+ * default {@code ~/.lab-device/profiles}:
+ * <pre>
+ * ch1.voltage = 12.00
+ * ch1.current = 1.500
+ * ch2.voltage = 5.00
+ * ch2.current = 0.500
+ * output      = on
+ * mode        = independent    # or serial / parallel
+ * </pre>
+ * {@link #applyTo(DeviceSession)} sends only what differs from the device's current
+ * state, as one {@link SetpointTransaction}. Output off goes first and output on last;
+ * a mode change always happens with the output off.
+ */
+public record SetpointProfile(
+        String name,
+        BigDecimal ch1Voltage,
+        BigDecimal ch1Current,
+        BigDecimal ch2Voltage,
+        BigDecimal ch2Current,
+        boolean output,
+        ChannelMode mode
+) {
+
+    private static final long FIRST_FRAME_TIMEOUT_MILLIS = 1_000;
+    private static final long COMPARED = FrameDecoder.maskOf(
+            Field.CH1_V_SET, Field.CH1_I_SET, Field.CH2_V_SET, Field.CH2_I_SET,
+            Field.OUTPUT, Field.SERIAL, Field.PARALLEL);
+
+    private static final String DIR_PROPERTY = "lab.profiles.dir";
+    private static final String SUFFIX = ".profile";
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9._ -]+");
+
+    public SetpointProfile {
+        if (!NAME.matcher(name).matches()) throw new IllegalArgumentException("invalid profile name: " + name);
+        // Fail here rather than on apply when a value has more decimals than the register
+        DeviceCommands.toRaw(Field.CH1_V_SET, ch1Voltage);
+        DeviceCommands.toRaw(Field.CH1_I_SET, ch1Current);
+        DeviceCommands.toRaw(Field.CH2_V_SET, ch2Voltage);
+        DeviceCommands.toRaw(Field.CH2_I_SET, ch2Current);
+    }
+
+    // -------------------------
+    // Apply
+    // -------------------------
+
+    /**
+     * Writes the registers that differ from the device in one burst; completes when the
+     * read-back confirms them.
+     * <p>
+     * Diffs against the session's latest published frame. If there is none yet (publication
+     * only starts with the first read), a read-all is requested and the diff waits for its
+     * answer. Only when no frame arrives within {@value #FIRST_FRAME_TIMEOUT_MILLIS} ms is
+     * everything written: output off first, then mode and setpoints, output on last if wanted.
+     */
+    public CompletableFuture<Void> applyTo(DeviceSession session) {
+        var latest = session.latestSnapshot();
+        if (!latest.isEmpty()) return commit(session, latest.raw());
+
+        var next = new NextFrame();
+        session.addStage(next);
+        session.pollNow();
+        return next.future
+                .completeOnTimeout(null, FIRST_FRAME_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                .whenComplete((_, _) -> session.removeStage(next))
+                .thenCompose(raw -> commit(session, raw));
+    }
+
+    private CompletableFuture<Void> commit(DeviceSession session, int[] current) {
+        var tx = session.transaction();
+        addWrites(tx, current);
+        return tx.commit();
+    }
+
+    /** @param current raw values by {@link Field#index()}, or null if the device state is unknown */
+    void addWrites(SetpointTransaction tx, int[] current) {
+        if (current == null) {
+            // The mode may change, so never under load
+            tx.output(false);
+            tx.mode(mode);
+            tx.raw(Field.CH1_V_SET, DeviceCommands.toRaw(Field.CH1_V_SET, ch1Voltage));
+            tx.raw(Field.CH1_I_SET, DeviceCommands.toRaw(Field.CH1_I_SET, ch1Current));
+            tx.raw(Field.CH2_V_SET, DeviceCommands.toRaw(Field.CH2_V_SET, ch2Voltage));
+            tx.raw(Field.CH2_I_SET, DeviceCommands.toRaw(Field.CH2_I_SET, ch2Current));
+            if (output) tx.output(true);
+            return;
+        }
+
+        boolean outputOn = current[Field.OUTPUT.index()] != 0;
+        boolean modeDiffers = modeOf(current) != mode;
+
+        // Output off first: when the profile wants it off, or before switching modes
+        if (outputOn && (!output || modeDiffers)) {
+            tx.output(false);
+            outputOn = false;
+        }
+
+        if (modeDiffers) tx.mode(mode);
+
+        setIfDiffers(tx, current, Field.CH1_V_SET, ch1Voltage);
+        setIfDiffers(tx, current, Field.CH1_I_SET, ch1Current);
+        setIfDiffers(tx, current, Field.CH2_V_SET, ch2Voltage);
+        setIfDiffers(tx, current, Field.CH2_I_SET, ch2Current);
+
+        if (output && !outputOn) tx.output(true);
+    }
+
+    /** Applies to every session at once; each one's writer sends its burst in parallel. */
+    public CompletableFuture<Void> applyTo(Collection<DeviceSession> sessions) {
+        return CompletableFuture.allOf(sessions.stream()
+                .map(this::applyTo)
+                .toArray(CompletableFuture[]::new));
+    }
+
+    private static void setIfDiffers(SetpointTransaction tx, int[] current, Field<BigDecimal> field, BigDecimal value) {
+        int raw = DeviceCommands.toRaw(field, value);
+        if (current[field.index()] != raw) tx.raw(field, raw);
+    }
+
+    private static ChannelMode modeOf(int[] raw) {
+        if (raw[Field.SERIAL.index()] != 0) return ChannelMode.SERIAL;
+        if (raw[Field.PARALLEL.index()] != 0) return ChannelMode.PARALLEL;
+        return ChannelMode.INDEPENDENT;
+    }
+
+    /** Captures the first frame that decoded every register the diff compares. */
+    private static final class NextFrame implements FrameStage {
+
+        final CompletableFuture<int[]> future = new CompletableFuture<>();
+
+        @Override
+        public void onFrame(FrameDecoder frame, long frameNanos) {
+            // Added mid-dispatch, this frame may have been decoded without our fields
+            if (future.isDone() || (frame.currentMask() & COMPARED) != COMPARED) return;
+            int[] raw = new int[Field.count()];
+            frame.copyFields(raw);
+            future.complete(raw);
+        }
+
+        @Override
+        public long fieldMask() {
+            return COMPARED;
+        }
+    }
+
+    // -------------------------
+    // Storage
+    // -------------------------
+
+    public static List<String> list() throws IOException {
+        var dir = directory();
+        if (!Files.isDirectory(dir)) return List.of();
+
+        try (var files = Files.list(dir)) {
+            return files
+                    .map(p -> p.getFileName().toString())
+                    .filter(n -> n.endsWith(SUFFIX))
+                    .map(n -> n.substring(0, n.length() - SUFFIX.length()))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    public static SetpointProfile load(String name) throws IOException {
+        var file = fileOf(name);
+        try (var in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(name, file.toString(), in);
+        }
+    }
+
+    /** Writes to a temporary file first, so a crash never leaves half a profile. */
+    public void save() throws IOException {
+        var file = fileOf(name);
+        Files.createDirectories(file.getParent());
+
+        var tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tmp, format(), StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static void delete(String name) throws IOException {
+        Files.deleteIfExists(fileOf(name));
+    }
+
+    private static Path fileOf(String name) {
+        if (!NAME.matcher(name).matches()) throw new IllegalArgumentException("invalid profile name: " + name);
+        return directory().resolve(name + SUFFIX);
+    }
+
+    private static Path directory() {
+        var dir = System.getProperty(DIR_PROPERTY);
+        if (dir != null) return Path.of(dir);
+        return Path.of(System.getProperty("user.home"), ".lab-device", "profiles");
+    }
+
+    private String format() {
+        return "# setpoint profile " + name + "\n"
+                + "ch1.voltage = " + ch1Voltage.toPlainString() + "\n"
+                + "ch1.current = " + ch1Current.toPlainString() + "\n"
+                + "ch2.voltage = " + ch2Voltage.toPlainString() + "\n"
+                + "ch2.current = " + ch2Current.toPlainString() + "\n"
+                + "output      = " + (output ? "on" : "off") + "\n"
+                + "mode        = " + mode.name().toLowerCase() + "\n";
+    }
+
+    static SetpointProfile parse(String name, String source, BufferedReader in) throws IOException {
+        BigDecimal[] setpoints = new BigDecimal[4];
+        Boolean output = null;
+        ChannelMode mode = null;
+        var keys = List.of("ch1.voltage", "ch1.current", "ch2.voltage", "ch2.current");
+
+        String line;
+        int lineNo = 0;
+        while ((line = in.readLine()) != null) {
+            lineNo++;
+            int hash = line.indexOf('#');
+            if (hash >= 0) line = line.substring(0, hash);
+            line = line.strip();
+            if (line.isEmpty()) continue;
+
+            int eq = line.indexOf('=');
+            if (eq <= 0) throw error(source, lineNo, "expected key = value");
+            String key = line.substring(0, eq).strip();
+            String value = line.substring(eq + 1).strip();
+
+            switch (key) {
+                case "output" -> output = switch (value) {
+                    case "on" -> true;
+                    case "off" -> false;
+                    default -> throw error(source, lineNo, "output must be on or off");
+                };
+                case "mode" -> mode = switch (value) {
+                    case "independent" -> ChannelMode.INDEPENDENT;
+                    case "serial" -> ChannelMode.SERIAL;
+                    case "parallel" -> ChannelMode.PARALLEL;
+                    default -> throw error(source, lineNo, "mode must be independent, serial or parallel");
+                };
+                default -> {
+                    int idx = keys.indexOf(key);
+                    if (idx < 0) throw error(source, lineNo, "unknown key " + key);
+                    try {
+                        setpoints[idx] = new BigDecimal(value);
+                    } catch (NumberFormatException e) {
+                        throw error(source, lineNo, key + " must be a decimal number");
+                    }
+                }
+            }
+        }
+
+        var missing = new ArrayList<String>();
+        for (int i = 0; i < setpoints.length; i++) if (setpoints[i] == null) missing.add(keys.get(i));
+        if (output == null) missing.add("output");
+        if (mode == null) missing.add("mode");
+        if (!missing.isEmpty()) throw new IllegalArgumentException(source + ": missing " + String.join(", ", missing));
+
+        try {
+            return new SetpointProfile(name, setpoints[0], setpoints[1], setpoints[2], setpoints[3], output, mode);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(source + ": setpoint has more decimals than its register", e);
+        }
+    }
+
+    private static IllegalArgumentException error(String source, int lineNo, String msg) {
+        return new IllegalArgumentException(source + ":" + lineNo + ": " + msg);
+    }
+}
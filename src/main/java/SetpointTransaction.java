@@ -0,0 +1,183 @@
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Several register writes that reach the device as one burst.
+ * <pre>
+ * session.transaction().ch1(v, i).output(true).commit();
+ * </pre>
+ * All commands plus a trailing read-all are encoded into one buffer and written
+ * under a single lock acquisition, so no poll can interleave. The returned future
+ * completes when a read-back frame shows every register at its new value, or fails
+ * with a {@link java.util.concurrent.TimeoutException} after {@value #CONFIRM_TIMEOUT_MILLIS} ms.
+ * <p>
+ * Writes are sent in the order they were added. A field set twice is written twice
+ * (e.g. output off first, on last); confirmation waits for its last value. Serial and
+ * parallel are set together through {@link #mode}, so a transaction cannot ask for both.
+ */
+public final class SetpointTransaction {
+
+    private static final long CONFIRM_TIMEOUT_MILLIS = 2_000;
+
+    private final DeviceSession session;
+    private final RegisterMap map;
+    private final Calibration calibration;
+
+    private final List<Write> writes = new ArrayList<>();
+
+    /** @param raw wanted raw value, before calibration; 0/1 for flags */
+    private record Write(Field<?> field, int raw) {
+        @Override
+        public String toString() {
+            return field + "=" + raw;
+        }
+    }
+
+    SetpointTransaction(DeviceSession session, RegisterMap map, Calibration calibration) {
+        this.session = session;
+        this.map = map;
+        this.calibration = calibration;
+    }
+
+    // -------------------------
+    // Builder
+    // -------------------------
+
+    public SetpointTransaction ch1(BigDecimal voltage, BigDecimal current) {
+        return voltage(1, voltage).current(1, current);
+    }
+
+    public SetpointTransaction ch2(BigDecimal voltage, BigDecimal current) {
+        return voltage(2, voltage).current(2, current);
+    }
+
+    public SetpointTransaction voltage(int channel, BigDecimal voltage) {
+        var field = channel == 1 ? Field.CH1_V_SET : Field.CH2_V_SET;
+        return raw(field, DeviceCommands.toRaw(field, voltage));
+    }
+
+    public SetpointTransaction current(int channel, BigDecimal current) {
+        var field = channel == 1 ? Field.CH1_I_SET : Field.CH2_I_SET;
+        return raw(field, DeviceCommands.toRaw(field, current));
+    }
+
+    public SetpointTransaction output(boolean on) {
+        return flag(Field.OUTPUT, on);
+    }
+
+    /** Confirmation expects both the serial and the parallel flag to match {@code mode}. */
+    public SetpointTransaction mode(ChannelMode mode) {
+        if (sharesModeRegister()) {
+            // One write sets both flags; INDEPENDENT clears the register through either
+            return mode == ChannelMode.PARALLEL ? flag(Field.PARALLEL, true) : flag(Field.SERIAL, mode == ChannelMode.SERIAL);
+        }
+        flag(Field.SERIAL, mode == ChannelMode.SERIAL);
+        return flag(Field.PARALLEL, mode == ChannelMode.PARALLEL);
+    }
+
+    /** Setpoint in raw fixed-point units (centivolts / milliamps). */
+    public SetpointTransaction raw(Field<BigDecimal> setpoint, int raw) {
+        map.encoder(setpoint); // fail early if the model cannot write it
+        writes.add(new Write(setpoint, raw));
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return writes.isEmpty();
+    }
+
+    private SetpointTransaction flag(Field<Boolean> flag, boolean on) {
+        map.encoder(flag);
+        writes.add(new Write(flag, on ? 1 : 0));
+        return this;
+    }
+
+    private boolean sharesModeRegister() {
+        int serial = map.indexOf(Field.SERIAL.name());
+        int parallel = map.indexOf(Field.PARALLEL.name());
+        if (serial < 0 || parallel < 0) return false;
+        var s = map.registers().get(serial);
+        var p = map.registers().get(parallel);
+        return s.writeFunction() == p.writeFunction() && s.writeAddress() == p.writeAddress();
+    }
+
+    // -------------------------
+    // Commit
+    // -------------------------
+
+    public CompletableFuture<Void> commit() {
+        if (writes.isEmpty()) return CompletableFuture.completedFuture(null);
+
+        byte[] batch = new byte[writes.size() * DeviceCommands.MAX_COMMAND_LENGTH + map.readAllFrame().length];
+        var finalValues = new LinkedHashMap<Field<?>, Integer>();
+
+        boolean shared = sharesModeRegister();
+        int len = 0;
+        for (var w : writes) {
+            var encoder = map.encoder(w.field);
+            if (w.field.scale() == 0) {
+                len += encoder.encodeInto(encoder.flagValue(w.raw != 0), batch, len);
+                finalValues.put(w.field, w.raw);
+                if (shared && (w.field == Field.SERIAL || w.field == Field.PARALLEL)) {
+                    // The other mode flag lives in the same register and reads back cleared
+                    finalValues.put(w.field == Field.SERIAL ? Field.PARALLEL : Field.SERIAL, 0);
+                }
+            } else {
+                // Read-back is corrected again, which may round one unit away from the wish
+                int written = calibration.toDevice(w.field, w.raw);
+                len += encoder.encodeInto(written, batch, len);
+                finalValues.put(w.field, calibration.toDisplay(w.field, written));
+            }
+        }
+        len += DeviceCommands.encodeReadAll(map, batch, len);
+
+        var fields = finalValues.keySet().toArray(Field<?>[]::new);
+        int[] expected = finalValues.values().stream().mapToInt(Integer::intValue).toArray();
+        var confirmation = new Confirmation(fields, expected);
+        session.addStage(confirmation);
+        confirmation.future
+                .orTimeout(CONFIRM_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                .whenComplete((_, _) -> session.removeStage(confirmation));
+
+        session.writeBatch(batch, len);
+        return confirmation.future;
+    }
+
+    /** The writes in order, e.g. {@code [OUTPUT=0, CH1_V_SET=1200]}. */
+    @Override
+    public String toString() {
+        return writes.toString();
+    }
+
+    /** Completes its future on the first frame where every written register reads back as expected. */
+    private static final class Confirmation implements FrameStage {
+
+        final Field<?>[] fields;
+        final int[] expected;
+        final long mask;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Confirmation(Field<?>[] fields, int[] expected) {
+            this.fields = fields;
+            this.expected = expected;
+            this.mask = FrameDecoder.maskOf(fields);
+        }
+
+        @Override
+        public void onFrame(FrameDecoder frame, long frameNanos) {
+            for (int i = 0; i < fields.length; i++) {
+                if (frame.raw(fields[i]) != expected[i]) return;
+            }
+            future.complete(null);
+        }
+
+        @Override
+        public long fieldMask() {
+            return mask;
+        }
+    }
+}
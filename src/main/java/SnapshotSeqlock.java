@@ -0,0 +1,108 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Publishes the latest frame's field values under a seqlock: the parser thread never
+ * blocks or allocates, readers on any thread retry until they saw one complete frame.
+ * <p>
+ * Publication starts with the first read. Until then the stage demands no fields, so
+ * sessions nobody polls this way keep their reduced decode. The frame in flight when
+ * publication starts was decoded without those fields and is skipped.
+ */
+final class SnapshotSeqlock implements FrameStage {
+
+    private static final VarHandle VERSION;
+
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(SnapshotSeqlock.class, "version", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int[] raw = new int[Field.count()];
+    private long frameNanos;
+
+    // Odd while a write is in progress; frames published = version / 2
+    @SuppressWarnings("unused")
+    private volatile long version;
+    private volatile boolean active;
+
+    // -------------------------
+    // Readers (any thread)
+    // -------------------------
+
+    LatestSnapshot read() {
+        active = true;
+        int[] copy = new int[raw.length];
+        long nanos;
+        long v;
+        do {
+            v = beginRead();
+            System.arraycopy(raw, 0, copy, 0, copy.length);
+            nanos = frameNanos;
+        } while (!validate(v));
+        return new LatestSnapshot(v >>> 1, nanos, copy);
+    }
+
+    /** Copies raw values into {@code dst} (at least {@link Field#count()} long); returns the sequence. */
+    long readInto(int[] dst) {
+        active = true;
+        long v;
+        do {
+            v = beginRead();
+            System.arraycopy(raw, 0, dst, 0, raw.length);
+        } while (!validate(v));
+        return v >>> 1;
+    }
+
+    /** {@link System#nanoTime()} of the last published frame; 0 before the first. */
+    long frameNanos() {
+        long v;
+        long nanos;
+        do {
+            v = beginRead();
+            nanos = frameNanos;
+        } while (!validate(v));
+        return nanos;
+    }
+
+    private long beginRead() {
+        long v;
+        while (((v = (long) VERSION.getAcquire(this)) & 1) != 0) {
+            Thread.onSpinWait();
+        }
+        return v;
+    }
+
+    private boolean validate(long v) {
+        VarHandle.loadLoadFence();
+        return (long) VERSION.getOpaque(this) == v;
+    }
+
+    // -------------------------
+    // FrameStage (parser thread)
+    // -------------------------
+
+    @Override
+    public void onFrame(FrameDecoder frame, long frameNanos) {
+        if (!active) return;
+        long fields = frame.presentMask() & FrameDecoder.FIELD_SLOTS;
+        if ((frame.currentMask() & fields) != fields) return;
+
+        long v = (long) VERSION.getOpaque(this);
+        VERSION.setOpaque(this, v + 1);
+        VarHandle.storeStoreFence();
+
+        frame.copyFields(raw);
+        this.frameNanos = frameNanos;
+
+        VERSION.setRelease(this, v + 2);
+    }
+
+    @Override
+    public long fieldMask() {
+        return active ? FrameDecoder.FIELD_SLOTS : 0;
+    }
+}
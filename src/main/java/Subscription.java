@@ -0,0 +1,9 @@
+/**
+ * Handle for a registered listener; closing it unsubscribes. Idempotent.
+ */
+@FunctionalInterface
+public interface Subscription extends AutoCloseable {
+
+    @Override
+    void close();
+}
@@ -0,0 +1,101 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CalibrationTest {
+
+    @Test
+    void identityChangesNothing() {
+        var cal = Calibration.identity();
+
+        assertTrue(cal.isIdentity());
+        assertEquals(1234, cal.toDisplay(Field.CH1_V_MEAS, 1234));
+        assertEquals(1234, cal.toDevice(Field.CH1_V_SET, 1234));
+    }
+
+    @Test
+    void correctsMeasuredAndSetpointTogether() throws IOException {
+        var cal = parse("CH1_V_MEAS  1.00125  -0.02   # reference meter");
+
+        assertFalse(cal.isIdentity());
+        assertEquals(FrameDecoder.maskOf(Field.CH1_V_MEAS, Field.CH1_V_SET), cal.mask());
+        // 1000 * 1.00125 = 1001.25 -> 1001, minus 2 centivolts
+        assertEquals(999, cal.toDisplay(Field.CH1_V_MEAS, 1000));
+        assertEquals(999, cal.toDisplay(Field.CH1_V_SET, 1000));
+        assertEquals(1000, cal.toDisplay(Field.CH2_V_MEAS, 1000));
+    }
+
+    @Test
+    void setpointsRoundTrip() throws IOException {
+        var cal = parse(
+                "CH1_V_MEAS  1.00125  -0.02",
+                "CH1_I_MEAS  0.998     0.001",
+                "CH2_V_MEAS  0.9997    0.05");
+
+        for (var field : new Field<?>[] {Field.CH1_V_SET, Field.CH1_I_SET, Field.CH2_V_SET}) {
+            for (int wanted = 100; wanted < 60_000; wanted += 7) {
+                int shown = cal.toDisplay(field, cal.toDevice(field, wanted));
+                assertTrue(Math.abs(shown - wanted) <= 1, field + " " + wanted + " -> " + shown);
+            }
+        }
+    }
+
+    @Test
+    void clampsToRegisterRange() throws IOException {
+        var cal = parse("CH1_V_MEAS  0.9  -0.05");
+
+        assertEquals(0, cal.toDisplay(Field.CH1_V_MEAS, 1));
+        assertEquals(0xFFFF, cal.toDevice(Field.CH1_V_SET, 0xFFFF));
+    }
+
+    @Test
+    void appliesOnlyToRequestedSlots() throws IOException {
+        var cal = parse("CH1_V_MEAS  1  0.10", "CH2_I_MEAS  1  0.001");
+        int[] raw = new int[Field.count()];
+        raw[Field.CH1_V_MEAS.index()] = 500;
+        raw[Field.CH2_I_MEAS.index()] = 500;
+
+        cal.apply(raw, FrameDecoder.maskOf(Field.CH1_V_MEAS));
+
+        assertEquals(510, raw[Field.CH1_V_MEAS.index()]);
+        assertEquals(500, raw[Field.CH2_I_MEAS.index()]);
+    }
+
+    @Test
+    void rejectsMalformedLines() {
+        assertError("expected 3 columns", "CH1_V_MEAS 1.0");
+        assertError("CH1_V_SET is not a measured voltage or current", "CH1_V_SET 1.0 0");
+        assertError("gain must be positive", "CH1_V_MEAS 0 0");
+        assertError("gain and offset must be decimal numbers", "CH1_V_MEAS one 0");
+        assertError("gain out of range", "CH1_V_MEAS 0.000001 0");
+    }
+
+    @Test
+    void loadsFileForDevice(@TempDir Path dir) throws IOException {
+        Files.writeString(dir.resolve("_dev_ttyUSB0.cal"), "CH2_V_MEAS 1 0.01\n");
+        System.setProperty("lab.calibration.dir", dir.toString());
+        try {
+            assertEquals(101, Calibration.forDevice("/dev/ttyUSB0").toDisplay(Field.CH2_V_MEAS, 100));
+            assertSame(Calibration.identity(), Calibration.forDevice("COM3"));
+        } finally {
+            System.clearProperty("lab.calibration.dir");
+        }
+    }
+
+    private static Calibration parse(String... lines) throws IOException {
+        return Calibration.parse("t", TestFrames.reader(lines));
+    }
+
+    private static void assertError(String message, String line) {
+        var e = assertThrows(IllegalArgumentException.class, () -> parse(line));
+        assertEquals("t:1: " + message, e.getMessage());
+    }
+}
@@ -0,0 +1,89 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.foreign.MemorySegment;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class CaptureAnalyzerTest {
+
+    private static final int FRAME = TestFrames.MAP.frameLength();
+    private static final long STALE_FRAMES = 5;
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void close() {
+        pool.close();
+    }
+
+    @Test
+    void smallChunksMergeToTheSingleChunkReport() {
+        byte[] capture = capture();
+        var whole = analyze(capture, capture.length);
+
+        assertEquals(30, whole.frames);
+        assertEquals(1, whole.gapCount);
+        assertEquals(3, whole.gapBytes);
+        assertEquals(List.of(new CaptureAnalyzer.Frozen(3, 3L * FRAME, 10), new CaptureAnalyzer.Frozen(24, 24L * FRAME + 3, 6)),
+                whole.frozen);
+        assertEquals(1, whole.transitions[Field.OUTPUT.index()]);
+        assertEquals(6, whole.transitions[Field.CH1_CC.index()]);
+
+        // Boundaries inside frames, on every frame, and across the frozen runs and flag changes
+        for (long chunk : new long[] {1, FRAME / 2 + 1, FRAME, FRAME + 1, 2L * FRAME + 3, 7L * FRAME}) {
+            assertSameReport(whole, analyze(capture, chunk), "chunk size " + chunk);
+        }
+    }
+
+    /**
+     * 30 read-alls: three changing, ten frozen with the output switched on by the first,
+     * CC toggling, 3 stray bytes, more toggling, then six frozen at the end.
+     */
+    private static byte[] capture() {
+        var out = new ByteArrayOutputStream();
+        int i = 0;
+        for (; i < 3; i++) out.writeBytes(frame(i, 100 + i, false, false));
+        for (; i < 13; i++) out.writeBytes(frame(i, 200, true, false));
+        for (; i < 18; i++) out.writeBytes(frame(i, 300 + i, true, i % 2 == 0));
+        out.writeBytes(new byte[] {1, 2, 3});
+        for (; i < 24; i++) out.writeBytes(frame(i, 300 + i, true, i == 18 || i == 19));
+        for (; i < 30; i++) out.writeBytes(frame(i, 400, true, false));
+        return out.toByteArray();
+    }
+
+    private static byte[] frame(int i, int volts, boolean output, boolean cc) {
+        return TestFrames.readAll(
+                Field.CH1_V_MEAS, volts,
+                Field.CH1_I_MEAS, 50,
+                Field.OUTPUT, output ? 1 : 0,
+                Field.CH1_CC, cc ? 1 : 0);
+    }
+
+    private CaptureAnalyzer.Report analyze(byte[] capture, long chunkSize) {
+        var data = MemorySegment.ofArray(capture);
+        return new CaptureAnalyzer(TestFrames.MAP, data, capture.length, chunkSize, STALE_FRAMES).analyze(pool);
+    }
+
+    private static void assertSameReport(CaptureAnalyzer.Report expected, CaptureAnalyzer.Report actual, String msg) {
+        assertEquals(expected.frames, actual.frames, msg);
+        assertEquals(expected.otherFrames, actual.otherFrames, msg);
+        assertEquals(expected.crcErrors, actual.crcErrors, msg);
+        assertEquals(expected.discardedBytes, actual.discardedBytes, msg);
+        assertEquals(expected.gapCount, actual.gapCount, msg);
+        assertEquals(expected.gapBytes, actual.gapBytes, msg);
+        assertEquals(expected.gaps, actual.gaps, msg);
+        assertEquals(expected.frozenCount, actual.frozenCount, msg);
+        assertEquals(expected.frozenFrames, actual.frozenFrames, msg);
+        assertEquals(expected.frozen, actual.frozen, msg);
+        assertArrayEquals(expected.initial, actual.initial, msg);
+        assertArrayEquals(expected.transitions, actual.transitions, msg);
+        assertEquals(expected.events, actual.events, msg);
+        assertArrayEquals(expected.min, actual.min, msg);
+        assertArrayEquals(expected.max, actual.max, msg);
+        assertArrayEquals(expected.sum, actual.sum, msg);
+    }
+}
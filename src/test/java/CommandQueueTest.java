@@ -0,0 +1,173 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CommandQueueTest {
+
+    private static final RegisterMap MAP = TestFrames.MAP;
+    private static final byte[] BLOCKER = MAP.encoder(Field.CH2_I_SET).encode(1);
+    private static final byte[] POLL = MAP.readAllCommand();
+
+    private final List<String> written = new ArrayList<>();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private CommandQueue queue;
+
+    @BeforeEach
+    void holdWriter() throws InterruptedException {
+        queue = new CommandQueue("test-writer", (cmd, len, _) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (written) {
+                written.add(HexFormat.of().formatHex(cmd, 0, len));
+            }
+        });
+        // The writer sits in the sink with this one until released, so the rest queues up
+        queue.submit(CommandQueue.Priority.SETPOINT, BLOCKER, BLOCKER.length, null);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    @AfterEach
+    void close() {
+        queue.close();
+        release.countDown();
+    }
+
+    @Test
+    void writesByPriorityThenFifo() throws InterruptedException {
+        byte[] v = value(Field.CH1_V_SET, 1200);
+        byte[] out = flag(true);
+        byte[] i = value(Field.CH1_I_SET, 500);
+
+        queue.submit(CommandQueue.Priority.POLL, POLL, POLL.length, null);
+        queue.submit(CommandQueue.Priority.SETPOINT, v, v.length, null);
+        queue.submit(CommandQueue.Priority.SETPOINT, out, out.length, null);
+        queue.submit(CommandQueue.Priority.SETPOINT, i, i.length, null);
+
+        assertWritten(BLOCKER, v, out, i, POLL);
+    }
+
+    @Test
+    void valueSetpointReplacesQueuedOneInPlace() throws InterruptedException {
+        byte[] v1 = value(Field.CH1_V_SET, 1200);
+        byte[] i = value(Field.CH1_I_SET, 500);
+        byte[] v2 = value(Field.CH1_V_SET, 1300);
+
+        queue.submitValue(v1, v1.length);
+        queue.submitValue(i, i.length);
+        queue.submitValue(v2, v2.length);
+
+        assertWritten(BLOCKER, v2, i);
+        assertEquals(1, queue.stats().coalesced());
+    }
+
+    @Test
+    void valueSetpointDoesNotJumpOtherWrites() throws InterruptedException {
+        byte[] v1 = value(Field.CH1_V_SET, 1200);
+        byte[] off = flag(false);
+        byte[] v2 = value(Field.CH1_V_SET, 1300);
+
+        queue.submitValue(v1, v1.length);
+        queue.submit(CommandQueue.Priority.SETPOINT, off, off.length, null);
+        queue.submitValue(v2, v2.length);
+
+        assertWritten(BLOCKER, v1, off, v2);
+        assertEquals(0, queue.stats().coalesced());
+    }
+
+    @Test
+    void plainSubmitNeverCoalesces() throws InterruptedException {
+        byte[] on = flag(true);
+        byte[] off = flag(false);
+
+        queue.submit(CommandQueue.Priority.SETPOINT, on, on.length, null);
+        queue.submit(CommandQueue.Priority.SETPOINT, off, off.length, null);
+        queue.submit(CommandQueue.Priority.SETPOINT, on, on.length, null);
+
+        assertWritten(BLOCKER, on, off, on);
+    }
+
+    @Test
+    void safetyDiscardsEverythingBelowIt() throws InterruptedException {
+        byte[] v = value(Field.CH1_V_SET, 1200);
+        byte[] on = flag(true);
+        byte[] off = flag(false);
+
+        queue.submitValue(v, v.length);
+        queue.submit(CommandQueue.Priority.SETPOINT, on, on.length, null);
+        queue.submit(CommandQueue.Priority.POLL, POLL, POLL.length, null);
+        queue.submit(CommandQueue.Priority.SAFETY, off, off.length, null);
+
+        assertWritten(BLOCKER, off);
+        assertEquals(3, queue.stats().discarded());
+    }
+
+    @Test
+    void atMostOnePollQueued() throws InterruptedException {
+        assertTrue(queue.submit(CommandQueue.Priority.POLL, POLL, POLL.length, null));
+        assertFalse(queue.submit(CommandQueue.Priority.POLL, POLL, POLL.length, null));
+        assertEquals(1, queue.depth());
+
+        assertWritten(BLOCKER, POLL);
+        assertTrue(queue.submit(CommandQueue.Priority.POLL, POLL, POLL.length, null));
+    }
+
+    @Test
+    void runsAfterWriteOnWriterThread() throws InterruptedException {
+        var ran = new CountDownLatch(1);
+        var thread = new Thread[1];
+        queue.submit(CommandQueue.Priority.POLL, POLL, POLL.length, () -> {
+            thread[0] = Thread.currentThread();
+            ran.countDown();
+        });
+        release.countDown();
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertEquals(queue.writerThread(), thread[0]);
+    }
+
+    @Test
+    void dropsSubmitsAfterClose() {
+        queue.close();
+
+        assertFalse(queue.submitValue(BLOCKER, BLOCKER.length));
+        assertEquals(0, queue.depth());
+    }
+
+    private void assertWritten(byte[]... expected) throws InterruptedException {
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            synchronized (written) {
+                if (written.size() >= expected.length) break;
+            }
+            Thread.sleep(1);
+        }
+        var hex = new ArrayList<String>();
+        for (var cmd : expected) hex.add(HexFormat.of().formatHex(cmd));
+        synchronized (written) {
+            assertEquals(hex, written);
+        }
+    }
+
+    private static byte[] value(Field<?> field, int raw) {
+        return MAP.encoder(field).encode(raw);
+    }
+
+    private static byte[] flag(boolean on) {
+        return MAP.encoder(Field.OUTPUT).encodeFlag(on);
+    }
+}
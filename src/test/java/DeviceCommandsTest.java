@@ -0,0 +1,108 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class DeviceCommandsTest {
+
+    private static final RegisterMap MAP = TestFrames.MAP;
+
+    @Test
+    void crcMatchesModbusCheckValue() {
+        byte[] check = "123456789".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(0x4B37, Crc16Modbus.compute(check, check.length));
+    }
+
+    @Test
+    void readAllCommand() {
+        byte[] cmd = DeviceCommands.readAll();
+
+        assertArrayEquals(new byte[] {(byte) 0xF7, 0x02, 0x03, 0x04, 0x09}, Arrays.copyOf(cmd, 5));
+        assertValidFrame(cmd);
+    }
+
+    @Test
+    void setVoltageEncodesCentivolts() {
+        byte[] cmd = DeviceCommands.setVoltage(1, new BigDecimal("12.34"));
+
+        // F7 02 FUNCTION ADDRESS 01 HI LO CRC_LO CRC_HI FD, 1234 = 0x04D2
+        assertArrayEquals(bytes(0xF7, 0x02, 0x0A, 0x0B, 0x01, 0x04, 0xD2), Arrays.copyOf(cmd, 7));
+        assertValidFrame(cmd);
+    }
+
+    @Test
+    void setCurrentEncodesMilliamps() {
+        byte[] cmd = DeviceCommands.setCurrent(2, new BigDecimal("1.5"));
+
+        assertArrayEquals(bytes(0xF7, 0x02, 0x0A, 0x0A, 0x01, 0x05, 0xDC), Arrays.copyOf(cmd, 7));
+        assertValidFrame(cmd);
+    }
+
+    @Test
+    void flagsUseTheirOnValue() {
+        assertArrayEquals(bytes(0x0A, 0x1E, 0x01, 0x00, 0x01), Arrays.copyOfRange(DeviceCommands.setOutput(true), 2, 7));
+        assertArrayEquals(bytes(0x0A, 0x1F, 0x01, 0x00, 0x01), Arrays.copyOfRange(DeviceCommands.setSerial(true), 2, 7));
+        assertArrayEquals(bytes(0x0A, 0x1F, 0x01, 0x00, 0x02), Arrays.copyOfRange(DeviceCommands.setParallel(true), 2, 7));
+        assertArrayEquals(bytes(0x0A, 0x1F, 0x01, 0x00, 0x00), Arrays.copyOfRange(DeviceCommands.setParallel(false), 2, 7));
+    }
+
+    @Test
+    void encodeIntoMatchesEncode() {
+        byte[] expected = MAP.encoder(Field.CH1_I_SET).encode(2500);
+
+        byte[] dst = new byte[3 + DeviceCommands.MAX_COMMAND_LENGTH];
+        assertEquals(expected.length, DeviceCommands.encodeRaw(MAP, Field.CH1_I_SET, 2500, dst, 3));
+        assertArrayEquals(expected, Arrays.copyOfRange(dst, 3, dst.length));
+
+        var buf = ByteBuffer.allocate(DeviceCommands.MAX_COMMAND_LENGTH);
+        DeviceCommands.encodeRaw(MAP, Field.CH1_I_SET, 2500, buf);
+        assertArrayEquals(expected, buf.array());
+    }
+
+    @Test
+    void encodeFlagMatchesSetOutput() {
+        byte[] dst = new byte[DeviceCommands.MAX_COMMAND_LENGTH];
+        DeviceCommands.encodeFlag(MAP, Field.OUTPUT, true, dst, 0);
+
+        assertArrayEquals(DeviceCommands.setOutput(true), dst);
+    }
+
+    @Test
+    void rejectsValuesOutsideU16() {
+        var encoder = MAP.encoder(Field.CH1_V_SET);
+
+        assertThrows(ArithmeticException.class, () -> encoder.encode(-1));
+        assertThrows(ArithmeticException.class, () -> encoder.encode(0x10000));
+        assertValidFrame(encoder.encode(0xFFFF));
+    }
+
+    @Test
+    void rejectsMoreDecimalsThanTheRegister() {
+        assertEquals(1500, DeviceCommands.toRaw(Field.CH1_I_SET, new BigDecimal("1.5")));
+        assertThrows(ArithmeticException.class, () -> DeviceCommands.setVoltage(1, new BigDecimal("1.234")));
+    }
+
+    @Test
+    void rejectsReadOnlyRegister() {
+        assertThrows(IllegalArgumentException.class, () -> MAP.encoder(Field.CH1_V_MEAS));
+    }
+
+    private static void assertValidFrame(byte[] frame) {
+        int n = frame.length;
+        int crc = Crc16Modbus.compute(frame, n - 3);
+        assertEquals((byte) crc, frame[n - 3]);
+        assertEquals((byte) (crc >> 8), frame[n - 2]);
+        assertEquals((byte) 0xFD, frame[n - 1]);
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] out = new byte[values.length];
+        for (int i = 0; i < values.length; i++) out[i] = (byte) values[i];
+        return out;
+    }
+}
@@ -0,0 +1,91 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+
+class DeviceResponseParserTest {
+
+    @Test
+    void parsesValuesAndFlags() {
+        byte[] frame = TestFrames.readAll(
+                Field.CH1_V_MEAS, 1198,
+                Field.CH1_I_MEAS, 250,
+                Field.CH1_V_SET, 1200,
+                Field.CH2_I_SET, 1500,
+                Field.CH1_CV, 1,
+                Field.CH2_CC, 1,
+                Field.OUTPUT, 1,
+                Field.PARALLEL, 1);
+
+        var s = DeviceResponseParser.parse(frame, frame.length);
+
+        assertEquals(new BigDecimal("11.98"), s.ch1().voltageMeasured());
+        assertEquals(new BigDecimal("0.250"), s.ch1().currentMeasured());
+        assertEquals(new BigDecimal("12.00"), s.ch1().voltageSet());
+        assertEquals(new BigDecimal("1.500"), s.ch2().currentSet());
+        assertTrue(s.ch1().cv());
+        assertFalse(s.ch1().cc());
+        assertTrue(s.ch2().cc());
+        assertTrue(s.ch1().output());
+        assertTrue(s.ch2().parallel());
+        assertFalse(s.ch2().serial());
+    }
+
+    @Test
+    void rejectsShortOrUnframedResponse() {
+        byte[] frame = TestFrames.readAll();
+
+        assertThrows(IllegalArgumentException.class, () -> DeviceResponseParser.parse(frame, frame.length - 1));
+
+        byte[] badStart = frame.clone();
+        badStart[0] = 0;
+        assertThrows(IllegalArgumentException.class, () -> DeviceResponseParser.parse(badStart, badStart.length));
+
+        byte[] badEnd = frame.clone();
+        badEnd[badEnd.length - 1] = 0;
+        assertThrows(IllegalArgumentException.class, () -> DeviceResponseParser.parse(badEnd, badEnd.length));
+    }
+
+    @Test
+    void decoderReportsChangedSlots() {
+        var decoder = new FrameDecoder(TestFrames.MAP);
+
+        long first = decoder.decode(TestFrames.readAll(Field.CH1_V_SET, 1200));
+        assertEquals(decoder.presentMask(), first);
+
+        long changed = decoder.decode(TestFrames.readAll(Field.CH1_V_SET, 1200, Field.OUTPUT, 1));
+        assertEquals(FrameDecoder.maskOf(Field.OUTPUT), changed);
+        assertEquals(0, decoder.decode(TestFrames.readAll(Field.CH1_V_SET, 1200, Field.OUTPUT, 1)));
+    }
+
+    @Test
+    void partialDemandLeavesOtherSlotsStale() {
+        var decoder = new FrameDecoder(TestFrames.MAP);
+        decoder.decode(TestFrames.readAll(Field.CH1_V_SET, 1200, Field.CH2_V_SET, 500));
+
+        long demand = FrameDecoder.maskOf(Field.CH1_V_SET);
+        long changed = decoder.decode(TestFrames.readAll(Field.CH1_V_SET, 1300, Field.CH2_V_SET, 600), demand);
+
+        assertEquals(demand, changed);
+        assertEquals(demand, decoder.currentMask());
+        assertEquals(1300, decoder.raw(Field.CH1_V_SET));
+        assertEquals(500, decoder.raw(Field.CH2_V_SET));
+
+        // Demanded again after a gap: reported as changed even where equal
+        changed = decoder.decode(TestFrames.readAll(Field.CH1_V_SET, 1300, Field.CH2_V_SET, 600));
+        assertTrue((changed & FrameDecoder.maskOf(Field.CH2_V_SET, Field.CH1_I_SET)) != 0);
+        assertEquals(600, decoder.raw(Field.CH2_V_SET));
+    }
+
+    @Test
+    void readsRegistersByName() {
+        var decoder = new FrameDecoder(TestFrames.MAP);
+        decoder.decode(TestFrames.readAll(Field.CH2_I_MEAS, 42));
+
+        assertEquals(42, decoder.raw("CH2_I_MEAS"));
+        assertThrows(IllegalArgumentException.class, () -> decoder.raw("NOPE"));
+    }
+}
@@ -0,0 +1,115 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class FrameBufferTest {
+
+    private final FrameBuffer buffer = new FrameBuffer(TestFrames.MAP);
+
+    @Test
+    void popsReadAllFrame() {
+        byte[] frame = TestFrames.readAll(Field.CH1_V_SET, 1200);
+        buffer.append(frame, frame.length, 10);
+
+        assertArrayEquals(frame, buffer.tryPopFrame());
+        assertNull(buffer.tryPopFrame());
+        assertEquals(1, buffer.frames());
+        assertEquals(10, buffer.frameFirstByteNanos());
+    }
+
+    @Test
+    void waitsForFrameSplitAcrossAppends() {
+        byte[] frame = TestFrames.readAll(Field.CH1_V_SET, 1200);
+        buffer.append(frame, 7, 10);
+        assertNull(buffer.tryPopFrame());
+
+        buffer.append(frame, 7, frame.length - 7, 20);
+        assertArrayEquals(frame, buffer.tryPopFrame());
+        assertEquals(10, buffer.frameFirstByteNanos());
+    }
+
+    @Test
+    void endMarkerInsideDataDoesNotCutFrameShort() {
+        // 0xFD in the high byte of a value
+        byte[] frame = TestFrames.readAll(Field.CH1_V_SET, 0xFD00);
+        buffer.append(frame, frame.length, 0);
+
+        assertArrayEquals(frame, buffer.tryPopFrame());
+    }
+
+    @Test
+    void skipsNoiseBeforeFrame() {
+        byte[] noise = {0x00, (byte) 0xFD, (byte) 0xF7, 0x55, 0x12};
+        byte[] frame = TestFrames.readAll(Field.OUTPUT, 1);
+        buffer.append(noise, noise.length, 0);
+        buffer.append(frame, frame.length, 5);
+
+        assertArrayEquals(frame, buffer.tryPopFrame());
+        assertEquals(noise.length, buffer.discardedBytes());
+        assertEquals(noise.length, buffer.frameOffset());
+        assertEquals(5, buffer.frameFirstByteNanos());
+    }
+
+    @Test
+    void rejectsCrcErrorAndResyncs() {
+        byte[] bad = TestFrames.readAll(Field.CH1_V_SET, 1200);
+        bad[bad.length - 3] ^= 0x01;
+        byte[] good = TestFrames.readAll(Field.CH1_V_SET, 1300);
+        buffer.append(bad, bad.length, 0);
+        buffer.append(good, good.length, 0);
+
+        assertArrayEquals(good, buffer.tryPopFrame());
+        assertEquals(1, buffer.crcErrors());
+        assertEquals(bad.length, buffer.frameOffset());
+    }
+
+    @Test
+    void findsWriteEchoByCrc() {
+        byte[] echo = TestFrames.MAP.encoder(Field.CH1_V_SET).encode(1200);
+        byte[] frame = TestFrames.readAll();
+        buffer.append(echo, echo.length, 0);
+        buffer.append(frame, frame.length, 0);
+
+        assertArrayEquals(echo, buffer.tryPopFrame());
+        assertArrayEquals(frame, buffer.tryPopFrame());
+        assertEquals(echo.length, buffer.frameOffset());
+    }
+
+    @Test
+    void frameHiddenInGarbageIsFound() {
+        byte[] frame = TestFrames.readAll(Field.CH2_I_SET, 500);
+        // A start marker and the device address that lead nowhere; the bogus start is
+        // only given up after MAX_FRAME bytes, so more frames follow
+        byte[] stream = new byte[3 + 3 * frame.length];
+        stream[0] = (byte) 0xF7;
+        stream[1] = 0x02;
+        stream[2] = 0x77;
+        for (int i = 0; i < 3; i++) System.arraycopy(frame, 0, stream, 3 + i * frame.length, frame.length);
+
+        for (int i = 0; i < stream.length; i++) {
+            buffer.append(stream, i, 1, i);
+        }
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(frame, buffer.tryPopFrame());
+            assertEquals(3 + i * frame.length, buffer.frameFirstByteNanos());
+        }
+        assertEquals(1, buffer.rejectedStarts());
+    }
+
+    @Test
+    void growsAndCompactsAcrossManyFrames() {
+        byte[] frame = TestFrames.readAll(Field.CH1_I_SET, 1000);
+        int n = 200;
+        for (int i = 0; i < n; i++) buffer.append(frame, frame.length, i);
+
+        for (int i = 0; i < n; i++) {
+            assertArrayEquals(frame, buffer.tryPopFrame());
+            assertEquals(i, buffer.frameFirstByteNanos());
+        }
+        assertNull(buffer.tryPopFrame());
+        assertEquals(n, buffer.frames());
+        assertEquals(0, buffer.discardedBytes());
+    }
+}
@@ -0,0 +1,191 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Stress harness for {@link FrameBuffer}: feeds clean, noisy and adversarial byte
+ * streams in random chunk sizes and reports how many intact frames came back out,
+ * how many bogus frames were accepted, and the throughput.
+ * <p>
+ * Run from the test classpath: {@code java -cp target/classes:target/test-classes FrameFuzzHarness [megabytes-per-scenario] [seed]}
+ */
+public final class FrameFuzzHarness {
+
+    private enum Scenario {
+        CLEAN,
+        RANDOM_GARBAGE,
+        MARKER_NOISE,
+        TRUNCATED_AND_FLIPPED
+    }
+
+    public static void main(String[] args) {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+
+        var map = RegisterMaps.defaultMap();
+
+        System.out.printf("%-22s %10s %10s %9s %9s %10s%n",
+                "scenario", "intact", "recovered", "rate", "spurious", "MB/s");
+
+        for (var scenario : Scenario.values()) {
+            run(map, scenario, megabytes << 20, new Random(seed));
+        }
+    }
+
+    private static void run(RegisterMap map, Scenario scenario, int size, Random rnd) {
+        var gen = new StreamGenerator(map, rnd);
+        byte[] stream = gen.generate(scenario, size);
+
+        // Warm-up pass so the timed pass measures compiled code
+        feed(map, stream, new Random(1), null);
+
+        var seen = new BitSet(gen.sequence);
+        long begin = System.nanoTime();
+        long[] spurious = new long[1];
+        feed(map, stream, new Random(2), frame -> {
+            int seq = sequenceOf(map, frame);
+            if (seq >= 0 && gen.intact.get(seq)) {
+                seen.set(seq);
+            } else {
+                spurious[0]++;
+            }
+        });
+        long elapsed = System.nanoTime() - begin;
+
+        int intact = gen.intact.cardinality();
+        int recovered = seen.cardinality();
+        System.out.printf("%-22s %10d %10d %8.3f%% %9d %10.1f%n",
+                scenario,
+                intact,
+                recovered,
+                intact == 0 ? 100.0 : 100.0 * recovered / intact,
+                spurious[0],
+                stream.length / (elapsed / 1e9) / (1 << 20));
+    }
+
+    private static void feed(RegisterMap map, byte[] stream, Random chunking, Consumer<byte[]> sink) {
+        var fb = new FrameBuffer(map);
+        byte[] chunk = new byte[64];
+        int pos = 0;
+        while (pos < stream.length) {
+            int n = Math.min(stream.length - pos, 1 + chunking.nextInt(chunk.length));
+            System.arraycopy(stream, pos, chunk, 0, n);
+            pos += n;
+            fb.append(chunk, n, pos);
+
+            byte[] frame;
+            while ((frame = fb.tryPopFrame()) != null) {
+                if (sink != null) sink.accept(frame);
+            }
+        }
+    }
+
+    /** Sequence number the generator put into CH2_V_MEAS/CH2_I_MEAS, or -1 if not a read-all frame. */
+    private static int sequenceOf(RegisterMap map, byte[] frame) {
+        if (!map.isReadAllResponse(frame) || !Frames.isValidFrame(frame)) return -1;
+        return ((frame[7] & 0xFF) << 24) | ((frame[8] & 0xFF) << 16) | ((frame[9] & 0xFF) << 8) | (frame[10] & 0xFF);
+    }
+
+    // -------------------------
+    // Stream generation
+    // -------------------------
+
+    private static final class StreamGenerator {
+
+        private final RegisterMap map;
+        private final Random rnd;
+        private final BitSet intact = new BitSet();
+        private int sequence;
+
+        private byte[] out;
+        private int len;
+
+        StreamGenerator(RegisterMap map, Random rnd) {
+            this.map = map;
+            this.rnd = rnd;
+        }
+
+        byte[] generate(Scenario scenario, int size) {
+            out = new byte[size + 256];
+            len = 0;
+
+            while (len < size) {
+                switch (scenario) {
+                    case CLEAN -> frame(true);
+                    case RANDOM_GARBAGE -> {
+                        garbage(rnd.nextInt(24), false);
+                        frame(true);
+                    }
+                    case MARKER_NOISE -> {
+                        garbage(rnd.nextInt(24), true);
+                        if (rnd.nextInt(4) == 0) fakeHeader();
+                        frame(true);
+                    }
+                    case TRUNCATED_AND_FLIPPED -> {
+                        int r = rnd.nextInt(10);
+                        if (r == 0) truncated();
+                        else if (r == 1) frame(false);
+                        else frame(true);
+                        garbage(rnd.nextInt(4), true);
+                    }
+                }
+            }
+            return Arrays.copyOf(out, len);
+        }
+
+        /** A read-all response with random data, the sequence number in bytes 7..10. */
+        private void frame(boolean keepIntact) {
+            int n = map.frameLength();
+            byte[] f = new byte[n];
+            System.arraycopy(map.readAllFrame(), 0, f, 0, 5);
+            for (int i = 5; i < n - 3; i++) f[i] = (byte) rnd.nextInt(256);
+
+            int seq = sequence++;
+            f[7] = (byte) (seq >> 24);
+            f[8] = (byte) (seq >> 16);
+            f[9] = (byte) (seq >> 8);
+            f[10] = (byte) seq;
+
+            int crc = Crc16Modbus.compute(f, n - 3);
+            f[n - 3] = (byte) crc;
+            f[n - 2] = (byte) (crc >> 8);
+            f[n - 1] = (byte) 0xFD;
+
+            if (keepIntact) {
+                intact.set(seq);
+            } else {
+                int idx = 1 + rnd.nextInt(n - 2);
+                f[idx] ^= (byte) (1 << rnd.nextInt(8));
+            }
+            put(f, n);
+        }
+
+        private void truncated() {
+            int before = len;
+            frame(false);
+            len = before + 1 + rnd.nextInt(map.frameLength() - 2);
+        }
+
+        private void fakeHeader() {
+            byte[] h = map.readAllFrame();
+            put(h, 1 + rnd.nextInt(5));
+        }
+
+        private void garbage(int n, boolean markerHeavy) {
+            for (int i = 0; i < n; i++) {
+                int r = rnd.nextInt(markerHeavy ? 3 : 1);
+                out[len++] = switch (r) {
+                    case 1 -> (byte) 0xF7;
+                    case 2 -> (byte) 0xFD;
+                    default -> (byte) rnd.nextInt(256);
+                };
+            }
+        }
+
+        private void put(byte[] src, int n) {
+            System.arraycopy(src, 0, out, len, n);
+            len += n;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LimitEngineTest {
+
+    private static final BigDecimal TEN_VOLTS = new BigDecimal("10.00");
+
+    private final FrameDecoder decoder = new FrameDecoder(TestFrames.MAP);
+    private final List<Runnable> queued = new ArrayList<>();
+    private final List<LimitTrip> reported = new ArrayList<>();
+    private boolean accepting = true;
+    private LimitEngine engine;
+
+    @BeforeEach
+    void createEngine() {
+        // Budget 0: every cutoff counts as over budget, so overBudget counts recordings
+        engine = new LimitEngine(written -> accepting && queued.add(written), 0, () -> {});
+        engine.onTrip(reported::add);
+    }
+
+    @Test
+    void cutoffIsReportedOnceWrittenWithWriteLatency() throws InterruptedException {
+        engine.add(LimitRule.above(Field.CH1_V_MEAS, TEN_VOLTS));
+
+        long frameNanos = System.nanoTime();
+        feed(Field.CH1_V_MEAS, 1001, frameNanos);
+        assertEquals(1, queued.size());
+        assertTrue(reported.isEmpty());
+
+        Thread.sleep(20);
+        writeQueued();
+
+        assertEquals(1, reported.size());
+        var trip = reported.getFirst();
+        assertEquals(1001, trip.rawValue());
+        assertEquals(frameNanos, trip.frameNanos());
+        assertTrue(trip.cutoffNanos() >= TimeUnit.MILLISECONDS.toNanos(20), "latency includes the write");
+        assertEquals(trip.cutoffNanos(), engine.stats().lastCutoffNanos());
+    }
+
+    @Test
+    void trippedRuleLatchesUntilRearmed() {
+        engine.add(LimitRule.above(Field.CH1_V_MEAS, TEN_VOLTS));
+
+        feed(Field.CH1_V_MEAS, 1001, 1);
+        feed(Field.CH1_V_MEAS, 1002, 2);
+        feed(Field.CH1_V_MEAS, 900, 3);
+        feed(Field.CH1_V_MEAS, 1003, 4);
+        assertEquals(1, queued.size());
+
+        engine.rearm();
+        feed(Field.CH1_V_MEAS, 1004, 5);
+        assertEquals(2, queued.size());
+        assertEquals(2, engine.stats().trips());
+    }
+
+    @Test
+    void oneCutoffPerFrameForSeveralRules() {
+        engine.add(LimitRule.above(Field.CH1_V_MEAS, TEN_VOLTS));
+        engine.add(LimitRule.above(Field.CH1_V_MEAS, new BigDecimal("5.00")));
+
+        feed(Field.CH1_V_MEAS, 1001, System.nanoTime());
+        assertEquals(1, queued.size());
+        writeQueued();
+
+        assertEquals(2, reported.size());
+        assertEquals(reported.get(0).cutoffNanos(), reported.get(1).cutoffNanos());
+        assertEquals(2, engine.stats().trips());
+        assertEquals(1, engine.stats().overBudget());
+    }
+
+    @Test
+    void alarmOnlyRuleReportsWithoutCutoff() {
+        engine.add(LimitRule.above(Field.CH1_V_MEAS, TEN_VOLTS).alarmOnly());
+
+        feed(Field.CH1_V_MEAS, 1001, 7);
+
+        assertTrue(queued.isEmpty());
+        assertEquals(1, reported.size());
+        assertEquals(-1, reported.getFirst().cutoffNanos());
+        assertEquals(-1, engine.stats().lastCutoffNanos());
+    }
+
+    @Test
+    void sustainedRuleNeedsConsecutiveFrames() {
+        engine.add(LimitRule.above(Field.CH1_V_MEAS, TEN_VOLTS).sustainedFor(3));
+
+        feed(Field.CH1_V_MEAS, 1001, 1);
+        feed(Field.CH1_V_MEAS, 1001, 2);
+        feed(Field.CH1_V_MEAS, 999, 3);
+        feed(Field.CH1_V_MEAS, 1001, 4);
+        feed(Field.CH1_V_MEAS, 1001, 5);
+        assertTrue(queued.isEmpty());
+
+        feed(Field.CH1_V_MEAS, 1001, 6);
+        assertEquals(1, queued.size());
+    }
+
+    @Test
+    void flagRuleTripsOnSet() {
+        engine.add(LimitRule.whenSet(Field.CH1_CC));
+
+        feed(Field.CH1_CC, 0, 1);
+        assertTrue(queued.isEmpty());
+        feed(Field.CH1_CC, 1, 2);
+        assertEquals(1, queued.size());
+    }
+
+    @Test
+    void rejectedCutoffStillReportsTrips() {
+        engine.add(LimitRule.above(Field.CH1_V_MEAS, TEN_VOLTS));
+        accepting = false;
+
+        feed(Field.CH1_V_MEAS, 1001, 1);
+
+        assertEquals(1, reported.size());
+        assertEquals(-1, reported.getFirst().cutoffNanos());
+    }
+
+    private void feed(Field<?> field, int raw, long nanos) {
+        decoder.decode(TestFrames.readAll(field, raw), engine.fieldMask());
+        engine.onFrame(decoder, nanos);
+    }
+
+    private void writeQueued() {
+        queued.forEach(Runnable::run);
+        queued.clear();
+    }
+}
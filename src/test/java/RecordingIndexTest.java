@@ -0,0 +1,135 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RecordingIndexTest {
+
+    private static final int RECORDS = 3 * RecordingFormat.INDEX_BLOCK_RECORDS + 100;
+    private static final BigDecimal THRESHOLD = new BigDecimal("10.00");
+
+    @TempDir
+    Path dir;
+
+    private final List<Long> micros = new ArrayList<>();
+    private final List<Integer> values = new ArrayList<>();
+
+    @Test
+    void rangeQueryReturnsSamplesInOrder() throws IOException {
+        record();
+        try (var index = RecordingIndex.open(dir)) {
+            readAll(index);
+            assertEquals(RECORDS, micros.size());
+            for (int i = 0; i < RECORDS; i++) assertEquals(valueAt(i), values.get(i));
+
+            var from = instant(micros.get(1000));
+            var to = instant(micros.get(2500));
+            var seen = new ArrayList<Integer>();
+            assertEquals(1500, index.forEach(Field.CH1_V_MEAS, from, to, (_, raw) -> seen.add(raw)));
+            assertEquals(values.subList(1000, 2500), seen);
+        }
+    }
+
+    @Test
+    void thresholdQueriesMatchAScan() throws IOException {
+        record();
+        try (var index = RecordingIndex.open(dir)) {
+            readAll(index);
+            var all = index.whenAbove(Field.CH1_V_MEAS, THRESHOLD, Instant.MIN, Instant.MAX);
+            assertEquals(scan(0, RECORDS, true), all);
+
+            // Bounds inside blocks, including the one that is above throughout
+            var from = instant(micros.get(950));
+            var to = instant(micros.get(2100));
+            assertEquals(scan(950, 2100, true), index.whenAbove(Field.CH1_V_MEAS, THRESHOLD, from, to));
+            assertEquals(scan(950, 2100, false), index.whenBelow(Field.CH1_V_MEAS, THRESHOLD, from, to));
+        }
+    }
+
+    @Test
+    void missingIndexIsRebuiltFromRecords() throws IOException {
+        record();
+        List<RecordingIndex.Interval> expected;
+        try (var index = RecordingIndex.open(dir)) {
+            expected = index.whenAbove(Field.CH1_V_MEAS, THRESHOLD, Instant.MIN, Instant.MAX);
+        }
+
+        var indexFiles = indexFiles();
+        assertFalse(indexFiles.isEmpty());
+        for (var f : indexFiles) Files.delete(f);
+
+        try (var index = RecordingIndex.open(dir)) {
+            assertEquals(expected, index.whenAbove(Field.CH1_V_MEAS, THRESHOLD, Instant.MIN, Instant.MAX));
+        }
+        // The last segment may still be growing, so its summary is not written back
+        assertTrue(indexFiles().isEmpty());
+    }
+
+    @Test
+    void emptyRangeVisitsNothing() throws IOException {
+        record();
+        try (var index = RecordingIndex.open(dir)) {
+            assertEquals(0, index.forEach(Field.CH1_V_MEAS, Instant.MIN, Instant.EPOCH, (_, _) -> {}));
+            assertTrue(index.whenAbove(Field.CH1_V_MEAS, new BigDecimal("100"), Instant.MIN, Instant.MAX).isEmpty());
+        }
+    }
+
+    /** Runs of 100 above and below the threshold, with the second block above throughout. */
+    private static int valueAt(int i) {
+        if (i >= RecordingFormat.INDEX_BLOCK_RECORDS && i < 2 * RecordingFormat.INDEX_BLOCK_RECORDS) return 2000;
+        return (i / 100) % 2 == 0 ? 1500 : 500;
+    }
+
+    private void record() throws IOException {
+        var decoder = new FrameDecoder(TestFrames.MAP);
+        long start = System.nanoTime();
+        try (var recorder = new Recorder(null, dir)) {
+            for (int i = 0; i < RECORDS; i++) {
+                decoder.decode(TestFrames.readAll(Field.CH1_V_MEAS, valueAt(i)));
+                recorder.onFrame(decoder, start + i * 1_000_000L);
+            }
+        }
+    }
+
+    private void readAll(RecordingIndex index) {
+        index.forEach(Field.CH1_V_MEAS, Instant.MIN, Instant.MAX, (epochMicros, raw) -> {
+            micros.add(epochMicros);
+            values.add(raw);
+        });
+    }
+
+    private List<RecordingIndex.Interval> scan(int from, int to, boolean above) {
+        int limit = 1000;
+        var out = new ArrayList<RecordingIndex.Interval>();
+        int start = -1;
+        for (int i = from; i <= to; i++) {
+            boolean hit = i < to && (above ? values.get(i) > limit : values.get(i) < limit);
+            if (hit && start < 0) start = i;
+            if (!hit && start >= 0) {
+                out.add(new RecordingIndex.Interval(instant(micros.get(start)), instant(micros.get(i - 1))));
+                start = -1;
+            }
+        }
+        return out;
+    }
+
+    private List<Path> indexFiles() throws IOException {
+        try (var files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(RecordingFormat.INDEX_SUFFIX)).sorted().toList();
+        }
+    }
+
+    private static Instant instant(long epochMicros) {
+        return Instant.EPOCH.plus(epochMicros, ChronoUnit.MICROS);
+    }
+}
@@ -0,0 +1,109 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+class RegisterMapTest {
+
+    private static final String[] HEADER = {
+            "model        = test",
+            "read-all     = F7 02 03 04 09",
+            "frame-length = 12",
+    };
+
+    @Test
+    void defaultMapHasEveryField() {
+        var map = TestFrames.MAP;
+
+        assertEquals("peaktech-2ch", map.model());
+        assertEquals(26, map.frameLength());
+        for (var f : Field.values()) {
+            assertTrue(map.indexOf(f.name()) >= 0, f.name());
+        }
+    }
+
+    @Test
+    void parsesRegisterColumns() throws IOException {
+        var map = parse("VOLTS   5  2  2  -  0A:0B", "MODE    7  1  0  3  0A:1F=02", "TEMP    8  1  0  -  -");
+
+        var volts = map.registers().get(map.indexOf("VOLTS"));
+        assertEquals(new RegisterMap.Register("VOLTS", 5, 2, 2, -1, 0x0A, 0x0B, 1), volts);
+        assertFalse(volts.isFlag());
+
+        var mode = map.registers().get(map.indexOf("MODE"));
+        assertTrue(mode.isFlag());
+        assertEquals(3, mode.bit());
+        assertEquals(0x02, mode.writeOnValue());
+
+        assertFalse(map.registers().get(map.indexOf("TEMP")).isWritable());
+        assertEquals(-1, map.indexOf("MISSING"));
+    }
+
+    @Test
+    void readAllResponseIsRecognized() {
+        var map = TestFrames.MAP;
+
+        assertTrue(map.isReadAllResponse(TestFrames.readAll()));
+        assertFalse(map.isReadAllResponse(map.encoder(Field.OUTPUT).encodeFlag(true)));
+    }
+
+    @Test
+    void rejectsBadWidth() {
+        assertError("width must be 1 or 2", "X  5  3  0  -  -");
+    }
+
+    @Test
+    void rejectsWideFlag() {
+        assertError("flags must have width 1", "X  5  2  0  1  -");
+    }
+
+    @Test
+    void rejectsBitOutsideByte() {
+        assertError("bit must be 0..7", "X  5  1  0  8  -");
+    }
+
+    @Test
+    void rejectsWriteWithoutAddress() {
+        assertError("write must be FUNCTION:ADDRESS", "X  5  2  0  -  0A");
+    }
+
+    @Test
+    void rejectsWrongColumnCount() {
+        assertError("expected 6 columns", "X  5  2  0  -");
+    }
+
+    @Test
+    void rejectsUnknownKey() {
+        var e = assertThrows(IllegalArgumentException.class,
+                () -> RegisterMap.parse("t", TestFrames.reader("colour = red")));
+        assertTrue(e.getMessage().contains("unknown key colour"), e.getMessage());
+    }
+
+    @Test
+    void rejectsRegisterOverlappingCrc() {
+        // frame-length 12: bytes 9..11 are CRC and end marker
+        var e = assertThrows(IllegalArgumentException.class, () -> parse("X  8  2  0  -  -"));
+        assertTrue(e.getMessage().contains("overlaps CRC"), e.getMessage());
+    }
+
+    @Test
+    void requiresHeaderKeys() {
+        assertThrows(IllegalArgumentException.class,
+                () -> RegisterMap.parse("t", TestFrames.reader("model = test", "X  5  2  0  -  -")));
+    }
+
+    private static RegisterMap parse(String... registers) throws IOException {
+        var lines = new String[HEADER.length + registers.length];
+        System.arraycopy(HEADER, 0, lines, 0, HEADER.length);
+        System.arraycopy(registers, 0, lines, HEADER.length, registers.length);
+        return RegisterMap.parse("t", TestFrames.reader(lines));
+    }
+
+    private static void assertError(String message, String register) {
+        var e = assertThrows(IllegalArgumentException.class, () -> parse(register));
+        assertEquals("t:4: " + message, e.getMessage());
+    }
+}
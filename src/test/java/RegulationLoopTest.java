@@ -0,0 +1,136 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class RegulationLoopTest {
+
+    private static final long TICK_NANOS = 100_000_000L;
+    private static final int TEN_VOLTS = 1000;
+    private static final int ONE_AMP = 1000;
+    private static final int HALF_AMP = 500;
+
+    private final FrameDecoder decoder = new FrameDecoder(TestFrames.MAP);
+    private final List<Integer> writes = new ArrayList<>();
+    private long nanos;
+
+    /** 10 W on CH1 through the voltage setpoint; at 10.00 V, 1.000 A is on target. */
+    private static Regulation tenWatts() {
+        return Regulation.constantPower(1, new BigDecimal("10"), new BigDecimal("20"));
+    }
+
+    private RegulationLoop loop(Regulation regulation) {
+        return new RegulationLoop(regulation, (field, raw) -> {
+            assertEquals(Field.CH1_V_SET, field);
+            writes.add(raw);
+        });
+    }
+
+    @Test
+    void startsBumplessFromTheCurrentSetpoint() {
+        var loop = loop(tenWatts());
+
+        feed(loop, true, 1200, ONE_AMP);
+        assertTrue(writes.isEmpty());
+        assertFalse(loop.status().paused());
+
+        feed(loop, true, 1200, ONE_AMP);
+        assertTrue(writes.isEmpty());
+        assertEquals(12.0, loop.status().output(), 1e-9);
+    }
+
+    @Test
+    void writesOnlyWhenTheRawValueChanges() {
+        // 0.001 V per watt of error: 1 W moves the setpoint less than one 10 mV step
+        var loop = loop(tenWatts().gains(0.001, 0, 0));
+
+        feed(loop, true, 1200, ONE_AMP);
+        feed(loop, true, 1200, 900);
+        assertTrue(writes.isEmpty());
+        assertEquals(1, loop.status().updates());
+
+        feed(loop, true, 1200, HALF_AMP);
+        assertEquals(List.of(1201), writes);
+        feed(loop, true, 1201, HALF_AMP);
+        assertEquals(List.of(1201), writes);
+        assertEquals(1, loop.status().writes());
+    }
+
+    @Test
+    void clampsToTheSlewRate() {
+        var loop = loop(tenWatts().gains(10, 0, 0).rateLimit(BigDecimal.ONE));
+
+        feed(loop, true, 1200, ONE_AMP);
+        feed(loop, true, 1200, HALF_AMP);
+        feed(loop, true, 1210, HALF_AMP);
+
+        // 1 V/s over 100 ms per frame
+        assertEquals(List.of(1210, 1220), writes);
+        assertTrue(loop.status().saturated());
+    }
+
+    @Test
+    void clampsToTheRange() {
+        var loop = loop(tenWatts().gains(10, 0, 0)
+                .limits(new BigDecimal("1"), new BigDecimal("12.05"))
+                .rateLimit(new BigDecimal("1000")));
+
+        feed(loop, true, 1200, ONE_AMP);
+        feed(loop, true, 1200, HALF_AMP);
+        assertEquals(List.of(1205), writes);
+        assertTrue(loop.status().saturated());
+
+        // Far too much power: the lower bound holds
+        feed(loop, true, 1205, 10_000);
+        assertEquals(List.of(1205, 100), writes);
+    }
+
+    @Test
+    void integratorHoldsWhileSaturated() {
+        // Starts at the upper limit, so a positive error can only wind up the integrator
+        var loop = loop(tenWatts().gains(0, 1, 0).limits(BigDecimal.ZERO, new BigDecimal("12.00")));
+
+        feed(loop, true, 1200, ONE_AMP);
+        for (int i = 0; i < 10; i++) feed(loop, true, 1200, HALF_AMP);
+        assertTrue(writes.isEmpty());
+        assertTrue(loop.status().saturated());
+
+        // 1 W too much: comes off the limit at once instead of unwinding 5 W*s first
+        feed(loop, true, 1200, 1100);
+        assertEquals(List.of(1190), writes);
+        assertFalse(loop.status().saturated());
+    }
+
+    @Test
+    void pausesWhileTheOutputIsOff() {
+        var loop = loop(tenWatts().gains(1, 0, 0));
+
+        feed(loop, true, 1200, ONE_AMP);
+        feed(loop, false, 1200, 0);
+        feed(loop, false, 1200, 0);
+        assertTrue(writes.isEmpty());
+        assertTrue(loop.status().paused());
+
+        // Resumes from the setpoint in effect by then, not the one before the pause
+        feed(loop, true, 1100, ONE_AMP);
+        assertFalse(loop.status().paused());
+        assertTrue(writes.isEmpty());
+        feed(loop, true, 1100, 1100);
+        assertEquals(List.of(1000), writes);
+    }
+
+    /** One read-all at {@link #TEN_VOLTS} measured, {@link #TICK_NANOS} after the previous. */
+    private void feed(RegulationLoop loop, boolean output, int setpoint, int amps) {
+        decoder.decode(TestFrames.readAll(
+                Field.OUTPUT, output ? 1 : 0,
+                Field.CH1_V_SET, setpoint,
+                Field.CH1_V_MEAS, TEN_VOLTS,
+                Field.CH1_I_MEAS, amps), loop.fieldMask());
+        nanos += TICK_NANOS;
+        loop.onFrame(decoder, nanos);
+    }
+}
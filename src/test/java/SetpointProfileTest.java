@@ -0,0 +1,133 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SetpointProfileTest {
+
+    private static final SetpointProfile BENCH = new SetpointProfile("bench",
+            new BigDecimal("12.00"), new BigDecimal("1.500"),
+            new BigDecimal("5.00"), new BigDecimal("0.500"),
+            true, ChannelMode.INDEPENDENT);
+
+    @Test
+    void writesOnlyWhatDiffers() {
+        int[] current = device(1200, 1500, 500, 400, true, ChannelMode.INDEPENDENT);
+
+        assertEquals("[CH2_I_SET=500]", diff(BENCH, current));
+    }
+
+    @Test
+    void nothingToWriteWhenDeviceMatches() {
+        int[] current = device(1200, 1500, 500, 500, true, ChannelMode.INDEPENDENT);
+
+        assertEquals("[]", diff(BENCH, current));
+    }
+
+    @Test
+    void switchesOutputOffFirstAndOnLast() {
+        int[] current = device(1000, 1500, 500, 500, true, ChannelMode.INDEPENDENT);
+        var off = withOutput(BENCH, false);
+
+        assertEquals("[OUTPUT=0, CH1_V_SET=1200]", diff(off, current));
+
+        current[Field.OUTPUT.index()] = 0;
+        assertEquals("[CH1_V_SET=1200, OUTPUT=1]", diff(BENCH, current));
+    }
+
+    @Test
+    void changesModeWithOutputOff() {
+        int[] current = device(1200, 1500, 500, 500, true, ChannelMode.INDEPENDENT);
+        var serial = new SetpointProfile("s", BENCH.ch1Voltage(), BENCH.ch1Current(),
+                BENCH.ch2Voltage(), BENCH.ch2Current(), true, ChannelMode.SERIAL);
+
+        // Serial and parallel share one register in the default map: one write sets both
+        assertEquals("[OUTPUT=0, SERIAL=1, OUTPUT=1]", diff(serial, current));
+    }
+
+    @Test
+    void unknownDeviceStateWritesEverythingWithOutputOffFirst() {
+        assertEquals("[OUTPUT=0, SERIAL=0, CH1_V_SET=1200, CH1_I_SET=1500, CH2_V_SET=500, CH2_I_SET=500, OUTPUT=1]",
+                diff(BENCH, null));
+        assertEquals("[OUTPUT=0, SERIAL=0, CH1_V_SET=1200, CH1_I_SET=1500, CH2_V_SET=500, CH2_I_SET=500]",
+                diff(withOutput(BENCH, false), null));
+
+        var parallel = new SetpointProfile("p", BENCH.ch1Voltage(), BENCH.ch1Current(),
+                BENCH.ch2Voltage(), BENCH.ch2Current(), true, ChannelMode.PARALLEL);
+        assertEquals("[OUTPUT=0, PARALLEL=1, CH1_V_SET=1200, CH1_I_SET=1500, CH2_V_SET=500, CH2_I_SET=500, OUTPUT=1]",
+                diff(parallel, null));
+    }
+
+    @Test
+    void parsesProfileFile() throws IOException {
+        var p = SetpointProfile.parse("bench", "t", TestFrames.reader(
+                "ch1.voltage = 12.00",
+                "ch1.current = 1.5   # amps",
+                "ch2.voltage = 5",
+                "ch2.current = 0.5",
+                "output      = on",
+                "mode        = independent"));
+
+        assertEquals(0, p.ch1Current().compareTo(BENCH.ch1Current()));
+        assertEquals("[]", diff(p, device(1200, 1500, 500, 500, true, ChannelMode.INDEPENDENT)));
+    }
+
+    @Test
+    void rejectsIncompleteOrInvalidProfiles() {
+        var e = assertThrows(IllegalArgumentException.class, () -> SetpointProfile.parse("p", "t",
+                TestFrames.reader("ch1.voltage = 1", "output = on")));
+        assertEquals("t: missing ch1.current, ch2.voltage, ch2.current, mode", e.getMessage());
+
+        e = assertThrows(IllegalArgumentException.class, () -> SetpointProfile.parse("p", "t",
+                TestFrames.reader("mode = stacked")));
+        assertEquals("t:1: mode must be independent, serial or parallel", e.getMessage());
+
+        assertThrows(IllegalArgumentException.class, () -> SetpointProfile.parse("p", "t", TestFrames.reader(
+                "ch1.voltage = 1.234", "ch1.current = 1", "ch2.voltage = 1", "ch2.current = 1",
+                "output = on", "mode = serial")));
+    }
+
+    @Test
+    void savesAndLoads(@TempDir Path dir) throws IOException {
+        System.setProperty("lab.profiles.dir", dir.toString());
+        try {
+            BENCH.save();
+
+            assertEquals(List.of("bench"), SetpointProfile.list());
+            assertEquals(BENCH, SetpointProfile.load("bench"));
+
+            SetpointProfile.delete("bench");
+            assertEquals(List.of(), SetpointProfile.list());
+        } finally {
+            System.clearProperty("lab.profiles.dir");
+        }
+    }
+
+    private static String diff(SetpointProfile profile, int[] current) {
+        var tx = new SetpointTransaction(null, TestFrames.MAP, Calibration.identity());
+        profile.addWrites(tx, current);
+        return tx.toString();
+    }
+
+    private static SetpointProfile withOutput(SetpointProfile p, boolean output) {
+        return new SetpointProfile(p.name(), p.ch1Voltage(), p.ch1Current(), p.ch2Voltage(), p.ch2Current(),
+                output, p.mode());
+    }
+
+    private static int[] device(int ch1V, int ch1I, int ch2V, int ch2I, boolean output, ChannelMode mode) {
+        int[] raw = new int[Field.count()];
+        raw[Field.CH1_V_SET.index()] = ch1V;
+        raw[Field.CH1_I_SET.index()] = ch1I;
+        raw[Field.CH2_V_SET.index()] = ch2V;
+        raw[Field.CH2_I_SET.index()] = ch2I;
+        raw[Field.OUTPUT.index()] = output ? 1 : 0;
+        raw[Field.SERIAL.index()] = mode == ChannelMode.SERIAL ? 1 : 0;
+        raw[Field.PARALLEL.index()] = mode == ChannelMode.PARALLEL ? 1 : 0;
+        return raw;
+    }
+}
@@ -0,0 +1,89 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class SnapshotSeqlockTest {
+
+    private static final Field<?>[] VALUES = {
+            Field.CH1_V_MEAS, Field.CH1_I_MEAS, Field.CH1_V_SET, Field.CH1_I_SET,
+            Field.CH2_V_MEAS, Field.CH2_I_MEAS, Field.CH2_V_SET, Field.CH2_I_SET,
+    };
+
+    private final SnapshotSeqlock lock = new SnapshotSeqlock();
+    private final FrameDecoder decoder = new FrameDecoder(TestFrames.MAP);
+
+    @Test
+    void publishesOnlyOnceRead() {
+        assertEquals(0, lock.fieldMask());
+        publish(frameWith(7), 100);
+        assertTrue(lock.read().isEmpty());
+
+        assertEquals(FrameDecoder.FIELD_SLOTS, lock.fieldMask());
+        publish(frameWith(8), 200);
+
+        var s = lock.read();
+        assertEquals(1, s.sequence());
+        assertEquals(200, s.frameNanos());
+        assertEquals(8, s.raw(Field.CH2_I_SET));
+        assertEquals(200, lock.frameNanos());
+    }
+
+    @Test
+    void skipsFramesDecodedWithoutEveryField() {
+        lock.read();
+        publish(frameWith(1), 0);
+
+        decoder.decode(frameWith(2), FrameDecoder.maskOf(Field.CH1_V_MEAS));
+        lock.onFrame(decoder, 0);
+
+        var s = lock.read();
+        assertEquals(1, s.sequence());
+        assertEquals(1, s.raw(Field.CH1_V_MEAS));
+    }
+
+    @Test
+    void readersNeverSeeTornFrames() throws InterruptedException {
+        lock.read();
+        int frames = 20_000;
+        byte[][] prepared = new byte[frames][];
+        for (int i = 0; i < frames; i++) prepared[i] = frameWith(i & 0x7FFF);
+
+        var done = new AtomicBoolean();
+        var torn = new AtomicReference<String>();
+        var reader = new Thread(() -> {
+            int[] raw = new int[Field.count()];
+            while (!done.get()) {
+                lock.readInto(raw);
+                for (var f : VALUES) {
+                    if (raw[f.index()] != raw[VALUES[0].index()]) torn.set(f + " " + raw[f.index()]);
+                }
+            }
+        });
+        reader.start();
+
+        for (int i = 0; i < frames; i++) publish(prepared[i], i);
+        done.set(true);
+        reader.join();
+
+        assertEquals(null, torn.get());
+        assertEquals(frames, lock.read().sequence());
+    }
+
+    private void publish(byte[] frame, long nanos) {
+        decoder.decode(frame, lock.fieldMask());
+        lock.onFrame(decoder, nanos);
+    }
+
+    /** Every numeric register at {@code value}. */
+    private static byte[] frameWith(int value) {
+        var args = new Object[VALUES.length * 2];
+        for (int i = 0; i < VALUES.length; i++) {
+            args[2 * i] = VALUES[i];
+            args[2 * i + 1] = value;
+        }
+        return TestFrames.readAll(args);
+    }
+}
@@ -0,0 +1,35 @@
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+/** Builds device frames for the default register map. */
+final class TestFrames {
+
+    static final RegisterMap MAP = RegisterMaps.defaultMap();
+
+    private TestFrames() {}
+
+    /** Read-all response with the given registers set, all others zero. */
+    static byte[] readAll(Object... fieldsAndValues) {
+        int len = MAP.frameLength();
+        byte[] payload = new byte[len - 3];
+        byte[] header = MAP.readAllFrame();
+        System.arraycopy(header, 0, payload, 0, header.length - 3);
+
+        for (int i = 0; i < fieldsAndValues.length; i += 2) {
+            var name = ((Field<?>) fieldsAndValues[i]).name();
+            int raw = (Integer) fieldsAndValues[i + 1];
+            var r = MAP.registers().get(MAP.indexOf(name));
+            if (r.isFlag()) {
+                if (raw != 0) payload[r.offset()] |= (byte) (1 << r.bit());
+            } else {
+                payload[r.offset()] = (byte) (raw >> 8);
+                payload[r.offset() + 1] = (byte) raw;
+            }
+        }
+        return RegisterEncoder.withCrcAndEnd(payload);
+    }
+
+    static BufferedReader reader(String... lines) {
+        return new BufferedReader(new StringReader(String.join("\n", lines)));
+    }
+}
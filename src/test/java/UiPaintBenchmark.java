@@ -0,0 +1,185 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Headless EDT cost of the Lab* components and the full {@link DeviceOverviewView}:
+ * per frame it applies one round of value updates, lays the tree out and paints it
+ * into an offscreen {@link BufferedImage}, and reports mean/p99 times and allocated
+ * bytes per frame (via {@code com.sun.management.ThreadMXBean}).
+ * <p>
+ * The EDT load columns extrapolate to device update rates: every update is applied,
+ * but Swing coalesces repaints to at most one per 60 Hz display tick.
+ * <p>
+ * Run from the test classpath (no display needed):
+ * {@code java -cp target/classes:target/test-classes UiPaintBenchmark [frames] [csv]}
+ */
+public final class UiPaintBenchmark {
+
+    private static final int[] RATES_HZ = {10, 50, 200};
+    private static final int DISPLAY_HZ = 60;
+
+    /** One benchmark target: a component tree and how to push one frame of new values into it. */
+    private record Subject(String name, JComponent root, int width, int height, IntConsumer update) {}
+
+    private record Result(
+            String name,
+            double updateMicros,
+            double layoutMicros,
+            double paintMicros,
+            double paintP99Micros,
+            long bytesPerFrame
+    ) {
+        double edtLoadPercent(int rateHz) {
+            int paints = Math.min(rateHz, DISPLAY_HZ);
+            double micros = rateHz * updateMicros + paints * (layoutMicros + paintMicros);
+            return micros / 10_000.0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        boolean csv = args.length > 1 && args[1].equals("csv");
+
+        var results = new ArrayList<Result>();
+        SwingUtilities.invokeAndWait(() -> {
+            for (var s : subjects()) {
+                run(s, frames / 2);                 // warm-up
+                results.add(run(s, frames));
+            }
+        });
+
+        print(results, csv);
+    }
+
+    // -------------------------
+    // Subjects
+    // -------------------------
+
+    private static List<Subject> subjects() {
+        var display = LabValueDisplay.readonly(2, 2);
+        var toggle = LabToggleButton.create("OUTPUT");
+        var led = LabLedLabel.create();
+        var heartbeat = LabHeartbeat.create();
+
+        var overview = DeviceOverviewView.createView(
+                new SerialPortInfo("BENCH", "Benchmark device"),
+                new DeviceActions(_ -> {}, _ -> {}, _ -> {}, _ -> {}, _ -> {}, _ -> {}, _ -> {}),
+                () -> {}
+        );
+        var b = overview.bindings();
+
+        return List.of(
+                new Subject("LabValueDisplay", display, 220, 80,
+                        k -> display.setValue(BigDecimal.valueOf(k % 3000, 2))),
+                new Subject("LabToggleButton", toggle, 120, 40,
+                        k -> toggle.setOn((k & 1) == 0)),
+                new Subject("LabLedLabel", led, 14, 14,
+                        k -> led.setOn((k & 1) == 0)),
+                new Subject("LabHeartbeat", heartbeat, 14, 14,
+                        k -> heartbeat.setOn((k & 1) == 0)),
+                new Subject("DeviceOverviewView", overview.view(), 965, 440, k -> {
+                    // One full frame of field updates, as FieldBinder delivers them
+                    boolean odd = (k & 1) == 1;
+                    b.ch1VoltageMeasured().accept(BigDecimal.valueOf(k % 3000, 2));
+                    b.ch1CurrentMeasured().accept(BigDecimal.valueOf(k % 5000, 3));
+                    b.ch1VoltageSet().accept(BigDecimal.valueOf(1200, 2));
+                    b.ch1CurrentSet().accept(BigDecimal.valueOf(1500, 3));
+                    b.ch1CV().accept(!odd);
+                    b.ch1CC().accept(odd);
+                    b.ch2VoltageMeasured().accept(BigDecimal.valueOf((k + 7) % 3000, 2));
+                    b.ch2CurrentMeasured().accept(BigDecimal.valueOf((k + 7) % 5000, 3));
+                    b.ch2VoltageSet().accept(BigDecimal.valueOf(500, 2));
+                    b.ch2CurrentSet().accept(BigDecimal.valueOf(500, 3));
+                    b.ch2CV().accept(odd);
+                    b.ch2CC().accept(!odd);
+                    b.output().accept(true);
+                    b.serial().accept(false);
+                    b.parallel().accept(false);
+                    b.heartbeat().accept(odd);
+                })
+        );
+    }
+
+    // -------------------------
+    // Measurement
+    // -------------------------
+
+    private static Result run(Subject s, int frames) {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().threadId();
+
+        // Without a window nothing passes a font down; give the root what a frame would
+        if (s.root.getFont() == null) s.root.setFont(UIManager.getFont("Panel.font"));
+        s.root.setSize(s.width, s.height);
+        var image = new BufferedImage(s.width, s.height, BufferedImage.TYPE_INT_ARGB);
+        var g = image.createGraphics();
+        var paintHistogram = new LatencyHistogram();
+
+        long update = 0;
+        long layout = 0;
+        long paint = 0;
+        long allocBefore = threads.getThreadAllocatedBytes(tid);
+
+        for (int k = 0; k < frames; k++) {
+            long t0 = System.nanoTime();
+            s.update.accept(k);
+            long t1 = System.nanoTime();
+            s.root.invalidate();
+            s.root.validate();
+            long t2 = System.nanoTime();
+            s.root.paint(g);
+            long t3 = System.nanoTime();
+
+            update += t1 - t0;
+            layout += t2 - t1;
+            paint += t3 - t2;
+            paintHistogram.record(t3 - t2);
+        }
+
+        long allocated = threads.getThreadAllocatedBytes(tid) - allocBefore;
+        g.dispose();
+
+        return new Result(
+                s.name,
+                update / 1e3 / frames,
+                layout / 1e3 / frames,
+                paint / 1e3 / frames,
+                paintHistogram.percentileNanos(0.99) / 1e3,
+                allocated / frames
+        );
+    }
+
+    // -------------------------
+    // Output
+    // -------------------------
+
+    private static void print(List<Result> results, boolean csv) {
+        if (csv) {
+            System.out.println("subject,update_us,layout_us,paint_us,paint_p99_us,bytes_per_frame,"
+                    + "edt_load_10hz,edt_load_50hz,edt_load_200hz");
+            for (var r : results) {
+                System.out.printf("%s,%.2f,%.2f,%.2f,%.2f,%d,%.3f,%.3f,%.3f%n",
+                        r.name, r.updateMicros, r.layoutMicros, r.paintMicros, r.paintP99Micros, r.bytesPerFrame,
+                        r.edtLoadPercent(RATES_HZ[0]), r.edtLoadPercent(RATES_HZ[1]), r.edtLoadPercent(RATES_HZ[2]));
+            }
+            return;
+        }
+
+        System.out.printf("%-20s %10s %10s %10s %10s %10s %9s %9s %9s%n",
+                "subject", "update us", "layout us", "paint us", "p99 us", "B/frame",
+                "load@10", "load@50", "load@200");
+        for (var r : results) {
+            System.out.printf("%-20s %10.2f %10.2f %10.2f %10.2f %10d %8.2f%% %8.2f%% %8.2f%%%n",
+                    r.name, r.updateMicros, r.layoutMicros, r.paintMicros, r.paintP99Micros, r.bytesPerFrame,
+                    r.edtLoadPercent(RATES_HZ[0]), r.edtLoadPercent(RATES_HZ[1]), r.edtLoadPercent(RATES_HZ[2]));
+        }
+    }
+}